@@ -0,0 +1,90 @@
+package org.pvv.larschri.geo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of coordinates in direct buffers with {@link Column}, in
+ * microseconds per batch of size points, for a batch that fits in the cache
+ * and one that does not. Compare with {@link #interleavedCopy()}, which
+ * copies to arrays and back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColumnBenchmark {
+    @Param({"4096", "4194304"})
+    int size;
+
+    ByteBuffer eastings;
+    ByteBuffer northings;
+    ByteBuffer pairs;
+    ByteBuffer pairsOut;
+
+    @Setup
+    public void setup() {
+        Points random = Points.random(size, 1);
+        eastings = ByteBuffer.allocateDirect(8 * size).order(ByteOrder.nativeOrder());
+        northings = ByteBuffer.allocateDirect(8 * size).order(ByteOrder.nativeOrder());
+        pairs = ByteBuffer.allocateDirect(16 * size).order(ByteOrder.nativeOrder());
+        pairsOut = ByteBuffer.allocateDirect(16 * size).order(ByteOrder.nativeOrder());
+        for (int k = 0; k < size; k++) {
+            eastings.putDouble(8 * k, random.easting[k]);
+            northings.putDouble(8 * k, random.northing[k]);
+            pairs.putDouble(16 * k, random.easting[k]);
+            pairs.putDouble(16 * k + 8, random.northing[k]);
+        }
+    }
+
+    /**
+     * Separate columns, converted into interleaved pairs.
+     */
+    @Benchmark
+    public ByteBuffer columns() {
+        UTM33ToLatLng.convert(Column.of(eastings), Column.of(northings),
+                Column.of(pairsOut, 0, 16), Column.of(pairsOut, 8, 16), size);
+        return pairsOut;
+    }
+
+    @Benchmark
+    public ByteBuffer interleaved() {
+        UTM33ToLatLng.convert(Column.of(pairs, 0, 16), Column.of(pairs, 8, 16),
+                Column.of(pairsOut, 0, 16), Column.of(pairsOut, 8, 16), size);
+        return pairsOut;
+    }
+
+    /**
+     * Copying interleaved pairs to arrays, converting, and copying back.
+     */
+    @Benchmark
+    public ByteBuffer interleavedCopy() {
+        double[] easting = new double[size];
+        double[] northing = new double[size];
+        for (int k = 0; k < size; k++) {
+            easting[k] = pairs.getDouble(16 * k);
+            northing[k] = pairs.getDouble(16 * k + 8);
+        }
+        UTM33ToLatLng.convert(easting, northing, easting, northing, 0, size);
+        for (int k = 0; k < size; k++) {
+            pairsOut.putDouble(16 * k, easting[k]);
+            pairsOut.putDouble(16 * k + 8, northing[k]);
+        }
+        return pairsOut;
+    }
+}
@@ -0,0 +1,232 @@
+package org.pvv.larschri.geo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of {@link UTM33ToLatLng#convert(double, double)} and the batch
+ * paths, in conversions per second. Run with -Pgc for bytes per conversion.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class ConvertBenchmark {
+    static final int SIZE = 4096;
+
+    Points random;
+    Points tracks;
+    Points outside;
+    double[] latitude = new double[SIZE];
+    double[] longitude = new double[SIZE];
+    byte[] status = new byte[SIZE];
+    int[] eastingCentimeters = new int[SIZE];
+    int[] northingCentimeters = new int[SIZE];
+    float[] latitudeFloat = new float[SIZE];
+    float[] longitudeFloat = new float[SIZE];
+    int[] latitudeMicroDegrees = new int[SIZE];
+    int[] longitudeMicroDegrees = new int[SIZE];
+    long[] packed = new long[SIZE];
+    BatchConverter scalar = BatchConverter.scalar();
+    BatchConverter vectorized = ExperimentalConverters.vectorized();
+    TrackConverter trackConverter = new TrackConverter();
+    double[] line = new double[2 * SIZE];
+    Grid mappedGrid;
+
+    @Setup
+    public void setup() throws IOException {
+        random = Points.random(SIZE, 1);
+        tracks = Points.tracks(SIZE, 2);
+        outside = Points.outside(SIZE, 3);
+        for (int k = 0; k < SIZE; k++) {
+            eastingCentimeters[k] = (int) Math.round(random.easting[k] * 100);
+            northingCentimeters[k] = (int) Math.round(random.northing[k] * 100);
+        }
+        Path file = Files.createTempFile("utm33", ".grid");
+        Grid.builtIn().write(file);
+        mappedGrid = Grid.load(file);
+        file.toFile().deleteOnExit();
+    }
+
+    @Benchmark
+    public UTM33ToLatLng.LatLng single() {
+        return UTM33ToLatLng.convert(146001.89, 6851888.74);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void random(Blackhole blackhole) {
+        for (int k = 0; k < SIZE; k++) {
+            blackhole.consume(UTM33ToLatLng.convert(random.easting[k], random.northing[k]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void tracks(Blackhole blackhole) {
+        for (int k = 0; k < SIZE; k++) {
+            blackhole.consume(UTM33ToLatLng.convert(tracks.easting[k], tracks.northing[k]));
+        }
+    }
+
+    /**
+     * Interpolation directly from the grid values, as before the per-cell
+     * coefficients were precomputed. Baseline for {@link #random(Blackhole)}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void randomGridInterpolation(Blackhole blackhole) {
+        for (int k = 0; k < SIZE; k++) {
+            int e = (int) random.easting[k] / UTM33ToLatLng.GRANULARITY * UTM33ToLatLng.GRANULARITY;
+            int n = (int) random.northing[k] / UTM33ToLatLng.GRANULARITY * UTM33ToLatLng.GRANULARITY;
+            int i = UTM33ToLatLng.index(e, n);
+            blackhole.consume(UTM33ToLatLng.interpolate(UTM33ToLatLng.Tables.LATITUDES, i, random.easting[k] - e, random.northing[k] - n));
+            blackhole.consume(UTM33ToLatLng.interpolate(UTM33ToLatLng.Tables.LONGITUDES, i, random.easting[k] - e, random.northing[k] - n));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] batchRandom() {
+        scalar.convert(random.easting, random.northing, latitude, longitude, 0, SIZE);
+        return latitude;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] batchTracks() {
+        scalar.convert(tracks.easting, tracks.northing, latitude, longitude, 0, SIZE);
+        return latitude;
+    }
+
+    /**
+     * Same as {@link #batchRandom()}, also storing the status of each point.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public byte[] batchRandomStatus() {
+        UTM33ToLatLng.convert(random.easting, random.northing, latitude, longitude, status, 0, SIZE);
+        return status;
+    }
+
+    /**
+     * Points outside the grid, converted with the analytic projection.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] batchOutside() {
+        scalar.convert(outside.easting, outside.northing, latitude, longitude, 0, SIZE);
+        return latitude;
+    }
+
+    /**
+     * {@link FixedPoint} with centimeters in, and the various outputs.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] fixedPointCentimeters() {
+        FixedPoint.convert(eastingCentimeters, northingCentimeters, 100, latitude, longitude, 0, SIZE);
+        return latitude;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public float[] fixedPointFloat() {
+        FixedPoint.convertToFloat(eastingCentimeters, northingCentimeters, 100, latitudeFloat, longitudeFloat, 0, SIZE);
+        return latitudeFloat;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int[] fixedPointMicroDegrees() {
+        FixedPoint.convertToMicroDegrees(eastingCentimeters, northingCentimeters, 100,
+                latitudeMicroDegrees, longitudeMicroDegrees, 0, SIZE);
+        return latitudeMicroDegrees;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long[] fixedPointPacked() {
+        FixedPoint.convertToPacked(eastingCentimeters, northingCentimeters, 100, packed, 0, SIZE);
+        return packed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] vectorizedRandom() {
+        vectorized.convert(random.easting, random.northing, latitude, longitude, 0, SIZE);
+        return latitude;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] vectorizedTracks() {
+        vectorized.convert(tracks.easting, tracks.northing, latitude, longitude, 0, SIZE);
+        return latitude;
+    }
+
+    /**
+     * {@link TrackConverter}, which only looks up cells when leaving the
+     * current one. Compare with {@link #batchTracks()}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] trackConverterTracks() {
+        trackConverter.convert(tracks.easting, tracks.northing, latitude, longitude, 0, SIZE);
+        return latitude;
+    }
+
+    /**
+     * {@link TrackConverter} with random points, where nearly every point
+     * is in another cell. Compare with {@link #batchRandom()}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] trackConverterRandom() {
+        trackConverter.convert(random.easting, random.northing, latitude, longitude, 0, SIZE);
+        return latitude;
+    }
+
+    /**
+     * {@link TrackConverter#convertLine(double[], int, int)} on the tracks
+     * as one polyline of easting, northing pairs, copied in first since it
+     * converts in place.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] trackConverterLine() {
+        for (int k = 0; k < SIZE; k++) {
+            line[2 * k] = tracks.easting[k];
+            line[2 * k + 1] = tracks.northing[k];
+        }
+        trackConverter.convertLine(line, 0, SIZE);
+        return line;
+    }
+
+    /**
+     * The built-in grid loaded from a memory-mapped grid file.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] mappedGridRandom() {
+        mappedGrid.convert(random.easting, random.northing, latitude, longitude, 0, SIZE);
+        return latitude;
+    }
+}
@@ -0,0 +1,123 @@
+package org.pvv.larschri.geo;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of geometries with {@link GeometryConverter}, in vertices per
+ * second. The geometry is a multipolygon of the tracks in {@link Points},
+ * with rings of 256 vertices. The WKB benchmarks copy the original in first,
+ * since they convert in place.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeometryBenchmark {
+    static final int VERTICES = 1 << 16;
+    static final int RING = 256;
+
+    byte[] original;
+    byte[] wkb;
+    ByteBuffer buffer;
+    String wkt;
+    StringWriter out = new StringWriter();
+    GeometryConverter converter = new GeometryConverter();
+    GeometryConverter rounding = new GeometryConverter(9);
+
+    @Setup
+    public void setup() {
+        Points tracks = Points.tracks(VERTICES, 2);
+        int polygons = VERTICES / RING;
+        ByteBuffer multipolygon = ByteBuffer.allocate(9 + polygons * 13 + 16 * VERTICES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        multipolygon.put((byte) 1).putInt(6).putInt(polygons);
+        StringBuilder text = new StringBuilder("MULTIPOLYGON (");
+        for (int polygon = 0; polygon < polygons; polygon++) {
+            multipolygon.put((byte) 1).putInt(3).putInt(1).putInt(RING);
+            text.append(polygon > 0 ? ", ((" : "((");
+            for (int k = polygon * RING; k < (polygon + 1) * RING; k++) {
+                multipolygon.putDouble(tracks.easting[k]).putDouble(tracks.northing[k]);
+                text.append(k > polygon * RING ? ", " : "")
+                        .append(Math.round(tracks.easting[k] * 100) / 100.0).append(' ')
+                        .append(Math.round(tracks.northing[k] * 100) / 100.0);
+            }
+            text.append("))");
+        }
+        original = multipolygon.array();
+        wkb = original.clone();
+        buffer = ByteBuffer.wrap(wkb);
+        wkt = text.append(')').toString();
+    }
+
+    /**
+     * WKB converted in place, a ring at a time.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VERTICES)
+    public byte[] wkb() {
+        System.arraycopy(original, 0, wkb, 0, wkb.length);
+        converter.convertWkb(buffer, 0);
+        return wkb;
+    }
+
+    /**
+     * Each vertex of the WKB converted by itself with
+     * {@link UTM33ToLatLng#convert(double, double)}, like after decoding the
+     * geometry into objects, but without the decoding. Compare with
+     * {@link #wkb()}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VERTICES)
+    public byte[] wkbPointByPoint() {
+        System.arraycopy(original, 0, wkb, 0, wkb.length);
+        ByteBuffer vertices = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (int polygon = 0, position = 9; polygon < VERTICES / RING; polygon++, position += 13 + 16 * RING) {
+            for (int k = position + 13; k < position + 13 + 16 * RING; k += 16) {
+                UTM33ToLatLng.LatLng point = UTM33ToLatLng.convert(vertices.getDouble(k), vertices.getDouble(k + 8));
+                vertices.putDouble(k, point.longitude).putDouble(k + 8, point.latitude);
+            }
+        }
+        return wkb;
+    }
+
+    /**
+     * WKT with centimeter coordinates, streamed from a string.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VERTICES)
+    public StringWriter wkt() throws IOException {
+        out.getBuffer().setLength(0);
+        converter.convertWkt(new StringReader(wkt), out);
+        return out;
+    }
+
+    /**
+     * Same as {@link #wkt()}, with output rounded to 9 decimals.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VERTICES)
+    public StringWriter wktDecimals() throws IOException {
+        out.getBuffer().setLength(0);
+        rounding.convertWkt(new StringReader(wkt), out);
+        return out;
+    }
+}
@@ -0,0 +1,61 @@
+package org.pvv.larschri.geo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of {@link LatLngToUTM33}, in conversions per second. Compare
+ * with {@link ConvertBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InverseBenchmark {
+    static final int SIZE = 4096;
+
+    double[] latitude = new double[SIZE];
+    double[] longitude = new double[SIZE];
+    double[] easting = new double[SIZE];
+    double[] northing = new double[SIZE];
+
+    @Setup
+    public void setup() {
+        Points random = Points.random(SIZE, 1);
+        UTM33ToLatLng.convert(random.easting, random.northing, latitude, longitude, 0, SIZE);
+    }
+
+    @Benchmark
+    public LatLngToUTM33.UTM33 single() {
+        return LatLngToUTM33.convert(61.636432, 8.312486);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void random(Blackhole blackhole) {
+        for (int k = 0; k < SIZE; k++) {
+            blackhole.consume(LatLngToUTM33.convert(latitude[k], longitude[k]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] batchRandom() {
+        LatLngToUTM33.convert(latitude, longitude, easting, northing, 0, SIZE);
+        return easting;
+    }
+}
@@ -0,0 +1,66 @@
+package org.pvv.larschri.geo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link ConversionMetrics}, in conversions per second. The plain
+ * benchmarks run without metrics, and should match the same benchmarks in
+ * {@link ConvertBenchmark}. The metrics benchmarks run in a JVM with
+ * -Dorg.pvv.larschri.geo.metrics=true.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class MetricsBenchmark {
+    static final int SIZE = 4096;
+
+    Points random;
+    double[] latitude = new double[SIZE];
+    double[] longitude = new double[SIZE];
+
+    @Setup
+    public void setup() {
+        random = Points.random(SIZE, 1);
+    }
+
+    @Benchmark
+    public UTM33ToLatLng.LatLng single() {
+        return UTM33ToLatLng.convert(146001.89, 6851888.74);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Dorg.pvv.larschri.geo.metrics=true"})
+    public UTM33ToLatLng.LatLng singleMetrics() {
+        return UTM33ToLatLng.convert(146001.89, 6851888.74);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] batchRandom() {
+        UTM33ToLatLng.convert(random.easting, random.northing, latitude, longitude, 0, SIZE);
+        return latitude;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Dorg.pvv.larschri.geo.metrics=true"})
+    public double[] batchRandomMetrics() {
+        UTM33ToLatLng.convert(random.easting, random.northing, latitude, longitude, 0, SIZE);
+        return latitude;
+    }
+}
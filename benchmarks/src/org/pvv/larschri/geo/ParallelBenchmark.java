@@ -0,0 +1,58 @@
+package org.pvv.larschri.geo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link UTM33ToLatLng#convertParallel(double[], double[], double[], double[])}
+ * in parallel, for different numbers of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelBenchmark {
+    static final int SIZE = 1 << 20;
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    ForkJoinPool pool;
+    Points random;
+    double[] latitude = new double[SIZE];
+    double[] longitude = new double[SIZE];
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+        random = Points.random(SIZE, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] convertParallel() {
+        pool.submit(() -> UTM33ToLatLng.convertParallel(random.easting, random.northing, latitude, longitude)).join();
+        return latitude;
+    }
+}
@@ -0,0 +1,87 @@
+package org.pvv.larschri.geo;
+
+import java.util.Random;
+
+/**
+ * Test data for the benchmarks. All points are within the grid, except for
+ * {@link #outside(int, long)}.
+ */
+class Points {
+    final double[] easting;
+    final double[] northing;
+
+    private Points(int size) {
+        easting = new double[size];
+        northing = new double[size];
+    }
+
+    private static boolean inGrid(double easting, double northing) {
+        return UTM33ToLatLng.covered(UTM33ToLatLng.index(
+                UTM33ToLatLng.floor(easting), UTM33ToLatLng.floor(northing)));
+    }
+
+    /**
+     * Points spread uniformly over the grid.
+     */
+    static Points random(int size, long seed) {
+        Random random = new Random(seed);
+        Points points = new Points(size);
+        for (int k = 0; k < size; ) {
+            double e = random.nextDouble() * 1200000;
+            double n = 6400000 + random.nextDouble() * 1600000;
+            if (inGrid(e, n)) {
+                points.easting[k] = e;
+                points.northing[k] = n;
+                k++;
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Points spread uniformly over the same area, but outside the grid, so
+     * that they are converted with the analytic projection.
+     */
+    static Points outside(int size, long seed) {
+        Random random = new Random(seed);
+        Points points = new Points(size);
+        for (int k = 0; k < size; ) {
+            double e = random.nextDouble() * 1200000;
+            double n = 6400000 + random.nextDouble() * 1600000;
+            if (!inGrid(e, n)) {
+                points.easting[k] = e;
+                points.northing[k] = n;
+                k++;
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Spatially coherent tracks, like GPS logs: consecutive points are about
+     * 10 meters apart, and a new track starts at a random point every 10000
+     * points or when leaving the grid.
+     */
+    static Points tracks(int size, long seed) {
+        Random random = new Random(seed);
+        Points start = random(1, seed);
+        Points points = new Points(size);
+        double e = start.easting[0], n = start.northing[0];
+        double heading = random.nextDouble() * 2 * Math.PI;
+        for (int k = 0; k < size; k++) {
+            heading += random.nextGaussian() * 0.05;
+            double nextE = e + 10 * Math.cos(heading);
+            double nextN = n + 10 * Math.sin(heading);
+            if (k % 10000 == 0 || !inGrid(nextE, nextN)) {
+                start = random(1, random.nextLong());
+                nextE = start.easting[0];
+                nextN = start.northing[0];
+            }
+            e = nextE;
+            n = nextN;
+            points.easting[k] = e;
+            points.northing[k] = n;
+        }
+        return points;
+    }
+}
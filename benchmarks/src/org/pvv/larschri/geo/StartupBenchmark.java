@@ -0,0 +1,32 @@
+package org.pvv.larschri.geo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to the first conversion in a fresh JVM, including class loading and
+ * initialization of the built-in grid.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark {
+    @Benchmark
+    public UTM33ToLatLng.LatLng firstConversion() {
+        return UTM33ToLatLng.convert(146001.89, 6851888.74);
+    }
+
+    @Benchmark
+    public LatLngToUTM33.UTM33 firstInverseConversion() {
+        return LatLngToUTM33.convert(61.636432, 8.312486);
+    }
+}
@@ -0,0 +1,302 @@
+package org.pvv.larschri.geo.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.pvv.larschri.geo.Column;
+import org.pvv.larschri.geo.TrackConverter;
+import org.pvv.larschri.geo.UTM33ToLatLng;
+
+/**
+ * Server for conversions by {@link UTM33ToLatLng}, for programs that are not
+ * on the JVM. It listens on TCP or a Unix domain socket for a binary
+ * protocol, and on HTTP for JSON. Each connection has its own thread, a
+ * virtual thread on Java 21 or later, and each request is converted as a
+ * batch.
+ * <p>
+ * The binary protocol has requests of a 32-bit point count followed by that
+ * many easting, northing pairs of 64-bit doubles, all big-endian. Each
+ * response is the point count followed by latitude, longitude pairs, in the
+ * same order as the requests. Requests may be pipelined: all requests that
+ * have arrived are converted and their responses written together. An
+ * invalid count closes the connection.
+ * <p>
+ * The HTTP endpoint /convert takes a POST of a JSON array of
+ * [easting, northing] pairs, and responds with an array of
+ * [latitude, longitude] pairs, with null for points converted to NaN.
+ */
+public class ConversionServer implements Closeable {
+    /**
+     * Maximum number of points in a request, so that a connection uses at
+     * most 32 MB.
+     */
+    public static final int MAX_POINTS = 1 << 20;
+
+    /**
+     * Maximum size of a JSON request in bytes.
+     */
+    static final int MAX_JSON = 1 << 26;
+
+    private static final int HEADER = 4;
+    private static final int POINT = 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ExecutorService executor = connectionExecutor();
+    private final List<Closeable> listeners = new ArrayList<>();
+
+    /**
+     * An executor with a virtual thread per task if the JVM has them, or
+     * else a new platform thread per task. Virtual threads are final in
+     * Java 21, and this module is built for Java 17.
+     */
+    static ExecutorService connectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Listen for the binary protocol on TCP on the loopback interface, and
+     * return the address. Port 0 picks a free port.
+     */
+    public InetSocketAddress listen(int port) throws IOException {
+        return listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Listen for the binary protocol on TCP on the given address.
+     */
+    public synchronized InetSocketAddress listen(InetSocketAddress address) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open().bind(address);
+        listeners.add(server);
+        executor.execute(() -> accept(server));
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Listen for the binary protocol on a Unix domain socket. A socket file
+     * left by a server that is gone is replaced, and the socket file is
+     * deleted by {@link #close()}.
+     */
+    public synchronized void listenUnix(Path path) throws IOException {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(path);
+        deleteStale(address);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(address);
+        listeners.add(server);
+        listeners.add(() -> Files.deleteIfExists(path));
+        executor.execute(() -> accept(server));
+    }
+
+    /**
+     * Delete the socket file of the address if no server accepts
+     * connections on it. Other files are left for bind to fail on.
+     */
+    private static void deleteStale(UnixDomainSocketAddress address) throws IOException {
+        Path path = address.getPath();
+        try {
+            if (!Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+                return;
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            throw new IOException("Socket " + path + " is in use");
+        } catch (ConnectException e) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Listen for JSON on HTTP on the loopback interface, and return the
+     * address. Port 0 picks a free port.
+     */
+    public synchronized InetSocketAddress listenHttp(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/convert", ConversionServer::handleJson);
+        server.start();
+        listeners.add(() -> server.stop(0));
+        return server.getAddress();
+    }
+
+    /**
+     * Stop listening and close all connections.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (Closeable listener : listeners) {
+            listener.close();
+        }
+        listeners.clear();
+        executor.shutdownNow();
+    }
+
+    private void accept(ServerSocketChannel server) {
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();
+                executor.execute(() -> {
+                    try (channel) {
+                        handle(channel);
+                    } catch (IOException e) {
+                        // The client is gone or sent an invalid request
+                    }
+                });
+            }
+        } catch (ClosedChannelException e) {
+            // Closed by close()
+        } catch (IOException e) {
+            System.err.println("Accept failed: " + e);
+        }
+    }
+
+    /**
+     * Serve the binary protocol on a connection until the client closes it.
+     * The requests are converted straight from the input buffer into the
+     * output buffer.
+     */
+    static void handle(SocketChannel channel) throws IOException {
+        ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        while (channel.read(in) >= 0) {
+            in.flip();
+            while (in.remaining() >= HEADER) {
+                int count = in.getInt(in.position());
+                if (count < 0 || count > MAX_POINTS) {
+                    throw new IOException("Invalid point count " + count);
+                }
+                int size = HEADER + POINT * count;
+                if (in.remaining() < size) {
+                    break;
+                }
+                if (out.remaining() < size) {
+                    write(channel, out);
+                    if (out.capacity() < size) {
+                        out = ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN);
+                    }
+                }
+                int input = in.position() + HEADER;
+                int output = out.position() + HEADER;
+                out.putInt(count);
+                UTM33ToLatLng.convert(Column.of(in, input, POINT), Column.of(in, input + 8, POINT),
+                        Column.of(out, output, POINT), Column.of(out, output + 8, POINT), count);
+                out.position(output + POINT * count);
+                in.position(input + POINT * count);
+            }
+            in.compact();
+            if (in.position() >= HEADER) {
+                // Make room for a request larger than the buffer
+                int size = HEADER + POINT * in.getInt(0);
+                if (size > in.capacity()) {
+                    in.flip();
+                    in = ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN).put(in);
+                }
+            }
+            write(channel, out);
+        }
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    private static void handleJson(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "{\"error\":\"POST a JSON array of [easting, northing] pairs\"}");
+                return;
+            }
+            byte[] body = exchange.getRequestBody().readNBytes(MAX_JSON + 1);
+            if (body.length > MAX_JSON) {
+                respond(exchange, 413, "{\"error\":\"Request larger than " + MAX_JSON + " bytes\"}");
+                return;
+            }
+            double[] coordinates;
+            try {
+                coordinates = JsonPairs.parse(new String(body, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, "{\"error\":\"" + e.getMessage() + "\"}");
+                return;
+            }
+            new TrackConverter().convertLine(coordinates, 0, coordinates.length / 2);
+            respond(exchange, 200, JsonPairs.format(coordinates));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Command line entry point, see usage below.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ConversionServer server = new ConversionServer();
+        int listening = 0;
+        for (int i = 0; i + 1 < args.length; i += 2, listening++) {
+            if (args[i].equals("--port")) {
+                System.err.println("Binary protocol on " + server.listen(Integer.parseInt(args[i + 1])));
+            } else if (args[i].equals("--unix")) {
+                server.listenUnix(Paths.get(args[i + 1]));
+                System.err.println("Binary protocol on " + args[i + 1]);
+            } else if (args[i].equals("--http")) {
+                int port = server.listenHttp(Integer.parseInt(args[i + 1])).getPort();
+                System.err.println("JSON on http://localhost:" + port + "/convert");
+            } else {
+                listening = 0;
+                break;
+            }
+        }
+        if (listening == 0 || args.length % 2 != 0) {
+            System.err.println("Usage: ConversionServer [--port N] [--unix PATH] [--http N]");
+            System.err.println("Serves UTM33 to latitude/longitude conversion on localhost, with a binary");
+            System.err.println("protocol on TCP port N or a Unix domain socket, and JSON on HTTP port N.");
+            server.close();
+            System.exit(2);
+        }
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,97 @@
+package org.pvv.larschri.geo.server;
+
+import java.util.Arrays;
+
+/**
+ * JSON arrays of number pairs, like [[146001.89, 6851888.74]], read into
+ * and written from an array of the numbers in order.
+ */
+final class JsonPairs {
+    private JsonPairs() {
+    }
+
+    /**
+     * The numbers of a JSON array of pairs, two per pair. Throws
+     * {@link IllegalArgumentException} if it is anything else.
+     */
+    static double[] parse(String json) {
+        double[] numbers = new double[64];
+        int count = 0;
+        int i = skip(json, 0);
+        i = expect(json, i, '[');
+        if (peek(json, i) == ']') {
+            i++;
+        } else {
+            while (true) {
+                i = expect(json, i, '[');
+                for (int k = 0; k < 2; k++) {
+                    if (count == numbers.length) {
+                        numbers = Arrays.copyOf(numbers, 2 * count);
+                    }
+                    int end = i;
+                    while (end < json.length() && "+-.0123456789eE".indexOf(json.charAt(end)) >= 0) {
+                        end++;
+                    }
+                    try {
+                        numbers[count++] = Double.parseDouble(json.substring(i, end));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Expected a number at offset " + i);
+                    }
+                    i = expect(json, skip(json, end), k == 0 ? ',' : ']');
+                }
+                if (peek(json, i) == ']') {
+                    i++;
+                    break;
+                }
+                i = expect(json, i, ',');
+            }
+        }
+        if (skip(json, i) != json.length()) {
+            throw new IllegalArgumentException("Unexpected text at offset " + skip(json, i));
+        }
+        return Arrays.copyOf(numbers, count);
+    }
+
+    /**
+     * A JSON array of the numbers in pairs, with null for NaN.
+     */
+    static String format(double[] numbers) {
+        StringBuilder json = new StringBuilder(20 * numbers.length + 2).append('[');
+        for (int k = 0; k < numbers.length; k += 2) {
+            json.append(k == 0 ? "[" : ",[");
+            append(json, numbers[k]).append(',');
+            append(json, numbers[k + 1]).append(']');
+        }
+        return json.append(']').toString();
+    }
+
+    private static StringBuilder append(StringBuilder json, double number) {
+        return Double.isNaN(number) ? json.append("null") : json.append(number);
+    }
+
+    /**
+     * The offset of the next character that is not whitespace from i.
+     */
+    private static int skip(String json, int i) {
+        while (i < json.length() && " \t\r\n".indexOf(json.charAt(i)) >= 0) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int peek(String json, int i) {
+        return i < json.length() ? json.charAt(i) : -1;
+    }
+
+    /**
+     * Skip whitespace and the expected character c from i, and return the
+     * offset after it.
+     */
+    private static int expect(String json, int i, char c) {
+        i = skip(json, i);
+        if (peek(json, i) != c) {
+            throw new IllegalArgumentException("Expected '" + c + "' at offset " + i);
+        }
+        return skip(json, i + 1);
+    }
+}
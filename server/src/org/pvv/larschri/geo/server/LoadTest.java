@@ -0,0 +1,184 @@
+package org.pvv.larschri.geo.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Load test of the binary protocol of {@link ConversionServer} on
+ * localhost. Each connection sends requests of random points over the area
+ * of the grid, keeping up to a given number of requests in flight, and
+ * measures the time from sending each request to receiving its response.
+ * Reports requests and points per second, and the median and 99th
+ * percentile latency. Without --port, it starts a server in the same JVM.
+ */
+public class LoadTest {
+    private final InetSocketAddress address;
+    private final int points;
+    private final int pipeline;
+    private final ByteBuffer request;
+
+    LoadTest(InetSocketAddress address, int points, int pipeline) {
+        this.address = address;
+        this.points = points;
+        this.pipeline = pipeline;
+        request = ByteBuffer.allocate(4 + 16 * points).order(ByteOrder.BIG_ENDIAN);
+        Random random = new Random(1);
+        request.putInt(points);
+        for (int k = 0; k < points; k++) {
+            request.putDouble(random.nextDouble() * 1200000);
+            request.putDouble(6400000 + random.nextDouble() * 1600000);
+        }
+        request.flip();
+    }
+
+    /**
+     * Send the requests on a new connection, and return the latency of each
+     * in nanoseconds. Requests are written by another thread, so that
+     * responses are read while requests are sent.
+     */
+    long[] connection(int requests) throws IOException, InterruptedException {
+        AtomicLongArray sent = new AtomicLongArray(requests);
+        long[] latencies = new long[requests];
+        Semaphore inFlight = new Semaphore(pipeline);
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int r = 0; r < requests; r++) {
+                        inFlight.acquire();
+                        ByteBuffer buffer = request.duplicate();
+                        sent.set(r, System.nanoTime());
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                    }
+                } catch (IOException | InterruptedException e) {
+                    // The reader fails too
+                }
+            });
+            writer.start();
+            ByteBuffer response = ByteBuffer.allocate(4 + 16 * points).order(ByteOrder.BIG_ENDIAN);
+            try {
+                for (int r = 0; r < requests; r++) {
+                    response.clear();
+                    while (response.hasRemaining()) {
+                        if (channel.read(response) < 0) {
+                            throw new EOFException("Connection closed by the server");
+                        }
+                    }
+                    latencies[r] = System.nanoTime() - sent.get(r);
+                    inFlight.release();
+                    if (response.getInt(0) != points) {
+                        throw new IOException("Invalid response count " + response.getInt(0));
+                    }
+                }
+            } finally {
+                writer.interrupt();
+                writer.join();
+            }
+        }
+        return latencies;
+    }
+
+    /**
+     * Run the given number of connections in parallel, and print the
+     * results.
+     */
+    void run(int connections, int requests, boolean print) throws IOException, InterruptedException {
+        long[][] latencies = new long[connections][];
+        IOException[] failure = new IOException[1];
+        Thread[] threads = new Thread[connections];
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            int connection = c;
+            threads[c] = new Thread(() -> {
+                try {
+                    latencies[connection] = connection(requests);
+                } catch (IOException e) {
+                    failure[0] = e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        if (!print) {
+            return;
+        }
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%d connections, %d requests in flight each, %d points per request%n",
+                connections, pipeline, points);
+        System.out.printf("%.0f requests/s, %.0f points/s%n", all.length / seconds, all.length * (double) points / seconds);
+        System.out.printf("latency p50 %.1f us, p99 %.1f us%n",
+                all[all.length / 2] / 1e3, all[(int) (all.length * 0.99)] / 1e3);
+    }
+
+    /**
+     * Warm up the JIT compiler with a fifth of the requests, and then run
+     * and print the measured test.
+     */
+    void run(int connections, int requests) throws IOException, InterruptedException {
+        run(connections, Math.max(requests / 5, 1), false);
+        run(connections, requests, true);
+    }
+
+    /**
+     * Command line entry point, see usage below.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 0;
+        int connections = 4;
+        int requests = 10000;
+        int points = 1000;
+        int pipeline = 4;
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                int value = Integer.parseInt(args[i + 1]);
+                if (args[i].equals("--port")) {
+                    port = value;
+                } else if (args[i].equals("--connections")) {
+                    connections = value;
+                } else if (args[i].equals("--requests")) {
+                    requests = value;
+                } else if (args[i].equals("--points")) {
+                    points = value;
+                } else if (args[i].equals("--pipeline")) {
+                    pipeline = value;
+                } else {
+                    throw new IllegalArgumentException(args[i]);
+                }
+            }
+            if (connections < 1 || requests < 1 || points < 0 || points > ConversionServer.MAX_POINTS || pipeline < 1) {
+                throw new IllegalArgumentException();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Usage: LoadTest [--port N] [--connections N] [--requests N] [--points N] [--pipeline N]");
+            System.err.println("Load test of a conversion server on localhost port N, with N requests per");
+            System.err.println("connection. Starts a server in the same JVM if no port is given.");
+            System.exit(2);
+        }
+        if (port != 0) {
+            new LoadTest(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), points, pipeline)
+                    .run(connections, requests);
+            return;
+        }
+        try (ConversionServer server = new ConversionServer()) {
+            new LoadTest(server.listen(0), points, pipeline).run(connections, requests);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.pvv.larschri.geo.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.URL;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.pvv.larschri.geo.UTM33ToLatLng;
+
+/**
+ * Both protocols must respond with the conversions of the library.
+ */
+class ConversionServerTest {
+    static final double[] EASTING = {146001.89, 300000, 500000, Double.NaN};
+    static final double[] NORTHING = {6851888.74, 7000000, 7500000, 7000000};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void binary() throws IOException {
+        try (ConversionServer server = new ConversionServer();
+                SocketChannel channel = SocketChannel.open(server.listen(0))) {
+            // Two pipelined requests, of 3 points and 1 point
+            ByteBuffer request = ByteBuffer.allocate(8 + 16 * EASTING.length);
+            request.putInt(3);
+            for (int k = 0; k < EASTING.length; k++) {
+                if (k == 3) {
+                    request.putInt(1);
+                }
+                request.putDouble(EASTING[k]).putDouble(NORTHING[k]);
+            }
+            request.flip();
+            while (request.hasRemaining()) {
+                channel.write(request);
+            }
+            ByteBuffer response = ByteBuffer.allocate(request.capacity());
+            while (response.hasRemaining() && channel.read(response) >= 0) {
+                // Read until both responses are in
+            }
+            response.flip();
+            assertEquals(3, response.getInt());
+            for (int k = 0; k < EASTING.length; k++) {
+                if (k == 3) {
+                    assertEquals(1, response.getInt());
+                }
+                UTM33ToLatLng.LatLng expected = UTM33ToLatLng.convert(EASTING[k], NORTHING[k]);
+                assertEquals(expected.latitude, response.getDouble());
+                assertEquals(expected.longitude, response.getDouble());
+            }
+        }
+    }
+
+    @Test
+    void binaryInvalidCount() throws IOException {
+        try (ConversionServer server = new ConversionServer();
+                SocketChannel channel = SocketChannel.open(server.listen(0))) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, -1));
+            assertEquals(-1, channel.read(ByteBuffer.allocate(4)));
+        }
+    }
+
+    @Test
+    void unixSocketFile() throws IOException {
+        // A socket file left by a server that did not delete it
+        Path path = directory.resolve("convert.sock");
+        ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(UnixDomainSocketAddress.of(path)).close();
+        assertTrue(Files.exists(path));
+        try (ConversionServer server = new ConversionServer()) {
+            server.listenUnix(path);
+            try (ConversionServer other = new ConversionServer()) {
+                assertThrows(IOException.class, () -> other.listenUnix(path));
+            }
+            try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(path))) {
+                channel.write(ByteBuffer.allocate(4).putInt(0, 0));
+                ByteBuffer response = ByteBuffer.allocate(4);
+                while (response.hasRemaining() && channel.read(response) >= 0) {
+                    // Read the empty response
+                }
+                assertEquals(0, response.getInt(0));
+            }
+        }
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void json() throws IOException {
+        try (ConversionServer server = new ConversionServer()) {
+            InetSocketAddress address = server.listenHttp(0);
+            StringBuilder expected = new StringBuilder("[");
+            for (int k = 0; k < 3; k++) {
+                UTM33ToLatLng.LatLng latLng = UTM33ToLatLng.convert(EASTING[k], NORTHING[k]);
+                expected.append(k == 0 ? "[" : ",[").append(latLng.latitude).append(',')
+                        .append(latLng.longitude).append(']');
+            }
+            expected.append(",[null,null]]");
+            String json = "[[146001.89, 6851888.74], [300000, 7000000], [500000, 7500000], [1e20, 7000000]]";
+            assertEquals(expected.toString(), post(address, json, 200));
+            assertEquals("[]", post(address, " [ ] ", 200));
+            assertTrue(post(address, "[[146001.89]]", 400).contains("error"));
+            assertTrue(post(address, "[[1, 2]] x", 400).contains("error"));
+        }
+    }
+
+    /**
+     * The response to posting json, which must have the given status.
+     */
+    private static String post(InetSocketAddress address, String json, int status) throws IOException {
+        URL url = new URL("http://" + address.getHostString() + ":" + address.getPort() + "/convert");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(status, connection.getResponseCode());
+        try (InputStream in = status == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
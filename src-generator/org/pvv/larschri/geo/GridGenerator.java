@@ -0,0 +1,179 @@
+package org.pvv.larschri.geo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generates the Java source of BuiltInGrid from grid/utm33.csv at build time,
+ * so that {@link UTM33ToLatLng} can decode the grid from compact string
+ * constants when first used. Not part of the library jar.
+ */
+public final class GridGenerator {
+    private GridGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: GridGenerator GRANULARITY INPUT.csv OUTPUT_DIRECTORY");
+            System.exit(2);
+        }
+        int granularity = Integer.parseInt(args[0]);
+        Path input = Paths.get(args[1]);
+        List<String> lines = Files.readAllLines(input, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).trim().equals("easting,northing,latitude,longitude")) {
+            throw new IOException(input + ": expected header easting,northing,latitude,longitude");
+        }
+        int size = lines.size() - 1;
+        int[] eastings = new int[size];
+        int[] northings = new int[size];
+        double[] latitudeValues = new double[size];
+        double[] longitudeValues = new double[size];
+        for (int k = 0; k < size; k++) {
+            String[] fields = lines.get(k + 1).trim().split(",");
+            try {
+                eastings[k] = Integer.parseInt(fields[0]);
+                northings[k] = Integer.parseInt(fields[1]);
+                latitudeValues[k] = Double.parseDouble(fields[2]);
+                longitudeValues[k] = Double.parseDouble(fields[3]);
+            } catch (RuntimeException e) {
+                throw new IOException(input + ":" + (k + 2) + ": invalid line " + lines.get(k + 1), e);
+            }
+        }
+        int minEasting = Arrays.stream(eastings).min().orElseThrow();
+        int minNorthing = Arrays.stream(northings).min().orElseThrow();
+        int columns = (Arrays.stream(eastings).max().getAsInt() - minEasting) / granularity + 1;
+        int rows = (Arrays.stream(northings).max().getAsInt() - minNorthing) / granularity + 1;
+
+        double[] latitudes = new double[columns * rows];
+        double[] longitudes = new double[columns * rows];
+        Arrays.fill(latitudes, Double.NaN);
+        Arrays.fill(longitudes, Double.NaN);
+        for (int k = 0; k < size; k++) {
+            if ((eastings[k] - minEasting) % granularity != 0 || (northings[k] - minNorthing) % granularity != 0) {
+                throw new IOException(input + ":" + (k + 2) + ": point is not on a " + granularity + " m grid");
+            }
+            if (Double.isNaN(latitudeValues[k]) || Double.isNaN(longitudeValues[k])) {
+                throw new IOException(input + ":" + (k + 2) + ": missing value");
+            }
+            int i = (northings[k] - minNorthing) / granularity * columns + (eastings[k] - minEasting) / granularity;
+            latitudes[i] = latitudeValues[k];
+            longitudes[i] = longitudeValues[k];
+        }
+
+        StringBuilder points = new StringBuilder();
+        double[] knownLatitudes = new double[size];
+        double[] knownLongitudes = new double[size];
+        for (int i = 0; i < columns * rows; i++) {
+            if (!Double.isNaN(latitudes[i])) {
+                knownLatitudes[points.length()] = latitudes[i];
+                knownLongitudes[points.length()] = longitudes[i];
+                points.append((char) i);
+            }
+        }
+        StringBuilder cells = new StringBuilder();
+        for (int i = 0; i < columns * rows; i++) {
+            if (i % columns + 2 < columns && i / columns + 2 < rows && complete(latitudes, columns, i)) {
+                cells.append((char) i);
+            }
+        }
+
+        // The nearest cell for each grid index, ties going to the lowest index
+        StringBuilder nearestCells = new StringBuilder();
+        for (int i = 0; i < columns * rows; i++) {
+            int distance = Integer.MAX_VALUE;
+            char nearest = 0;
+            for (int k = 0; k < cells.length(); k++) {
+                int j = cells.charAt(k);
+                int dColumn = i % columns - j % columns, dRow = i / columns - j / columns;
+                if (dColumn * dColumn + dRow * dRow < distance) {
+                    distance = dColumn * dColumn + dRow * dRow;
+                    nearest = (char) j;
+                }
+            }
+            nearestCells.append(nearest);
+        }
+
+        StringBuilder source = new StringBuilder();
+        source.append("package org.pvv.larschri.geo;\n\n")
+                .append("/**\n")
+                .append(" * The built-in grid, generated from grid/utm33.csv by GridGenerator. POINTS\n")
+                .append(" * has the grid index of each known point, and LATITUDES and LONGITUDES its\n")
+                .append(" * values, each as the four chars of the bits of the double, from the most\n")
+                .append(" * significant.\n")
+                .append(" * CELLS has the grid index of each cell where all the 3x3 grid points are\n")
+                .append(" * known, and NEAREST_CELLS the nearest such cell for each grid index.\n")
+                .append(" */\n")
+                .append("final class BuiltInGrid {\n")
+                .append("    static final int GRANULARITY = ").append(granularity).append(";\n")
+                .append("    static final int MIN_EASTING = ").append(minEasting).append(";\n")
+                .append("    static final int MIN_NORTHING = ").append(minNorthing).append(";\n")
+                .append("    static final int COLUMNS = ").append(columns).append(";\n")
+                .append("    static final int ROWS = ").append(rows).append(";\n\n")
+                .append("    static final String POINTS = ").append(literal(points.toString())).append(";\n\n")
+                .append("    static final String LATITUDES = ").append(encode(knownLatitudes, points.length())).append(";\n\n")
+                .append("    static final String LONGITUDES = ").append(encode(knownLongitudes, points.length())).append(";\n\n")
+                .append("    static final String CELLS = ").append(literal(cells.toString())).append(";\n\n")
+                .append("    static final String NEAREST_CELLS = ").append(literal(nearestCells.toString())).append(";\n\n")
+                .append("    private BuiltInGrid() {\n")
+                .append("    }\n")
+                .append("}\n");
+        Path output = Paths.get(args[2], "org", "pvv", "larschri", "geo", "BuiltInGrid.java");
+        Files.createDirectories(output.getParent());
+        Files.write(output, source.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Return whether none of the 3x3 grid points starting at index i are
+     * missing. Latitudes and longitudes are missing for the same points.
+     */
+    private static boolean complete(double[] grid, int columns, int i) {
+        for (int j = 0; j < 3; j++) {
+            for (int k = 0; k < 3; k++) {
+                if (Double.isNaN(grid[i + j * columns + k])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Java string literal of the first length values, each as the four chars
+     * of its bits, from the most significant.
+     */
+    private static String encode(double[] values, int length) {
+        StringBuilder chars = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            long bits = Double.doubleToRawLongBits(values[i]);
+            for (int k = 3; k >= 0; k--) {
+                chars.append((char) (bits >>> (16 * k)));
+            }
+        }
+        return literal(chars.toString());
+    }
+
+    /**
+     * Java string literal of the given chars, 32 per line. Chars below 256
+     * are octal escapes, since unicode escapes are translated before the
+     * source is parsed, and would for example break on a newline.
+     */
+    private static String literal(String chars) {
+        if (chars.isEmpty()) {
+            return "\"\"";
+        }
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < chars.length(); i++) {
+            if (i % 32 == 0) {
+                literal.append(i == 0 ? "\"" : "\"\n            + \"");
+            }
+            char c = chars.charAt(i);
+            literal.append(c < 0x100 ? String.format("\\%03o", (int) c) : String.format("\\u%04x", (int) c));
+        }
+        return literal.append('"').toString();
+    }
+}
@@ -0,0 +1,72 @@
+package org.pvv.larschri.geo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Computes the inverse table of {@link LatLngToUTM33} at build time into the
+ * resource utm33-inverse.table, as little-endian doubles with all the
+ * eastings and then all the northings. Not part of the library jar.
+ */
+public final class InverseTableGenerator {
+    private InverseTableGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: InverseTableGenerator OUTPUT");
+            System.err.println("Computes the inverse table read by LatLngToUTM33.");
+            System.exit(2);
+        }
+        int size = LatLngToUTM33.ROWS * LatLngToUTM33.COLUMNS;
+        double[] eastings = new double[size];
+        double[] northings = new double[size];
+        computeTable(eastings, northings);
+        ByteBuffer buffer = ByteBuffer.allocate(16 * size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asDoubleBuffer().put(eastings).put(northings);
+        Path output = Paths.get(args[0]);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Compute the inverse table, ROWS * COLUMNS eastings and northings.
+     * Start from the nearest point in the grid of UTM33ToLatLng, and iterate
+     * until converged.
+     */
+    static void computeTable(double[] eastings, double[] northings) {
+        LatLngToUTM33.Solver solver = new LatLngToUTM33.Solver();
+        for (int i = 0; i < LatLngToUTM33.ROWS * LatLngToUTM33.COLUMNS; i++) {
+            double latitude = LatLngToUTM33.MIN_LATITUDE + i / LatLngToUTM33.COLUMNS * LatLngToUTM33.STEP_LATITUDE;
+            double longitude = LatLngToUTM33.MIN_LONGITUDE + i % LatLngToUTM33.COLUMNS * LatLngToUTM33.STEP_LONGITUDE;
+            double distance = Double.POSITIVE_INFINITY;
+            int nearest = -1;
+            for (int j = 0; j < UTM33ToLatLng.Tables.LATITUDES.length; j++) {
+                double dLat = UTM33ToLatLng.Tables.LATITUDES[j] - latitude;
+                double dLng = (UTM33ToLatLng.Tables.LONGITUDES[j] - longitude) / 2;
+                if (dLat * dLat + dLng * dLng < distance) {
+                    distance = dLat * dLat + dLng * dLng;
+                    nearest = j;
+                }
+            }
+            solver.solve(latitude, longitude, UTM33ToLatLng.easting(nearest), UTM33ToLatLng.northing(nearest),
+                    4 * LatLngToUTM33.MAX_ITERATIONS);
+            boolean finite = Double.isFinite(solver.easting) && Double.isFinite(solver.northing);
+            eastings[i] = finite ? solver.easting : UTM33ToLatLng.easting(nearest);
+            northings[i] = finite ? solver.northing : UTM33ToLatLng.northing(nearest);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.pvv.larschri.geo;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link BatchConverter} that converts one vector of points at a time using
+ * the Java Vector API. Grid cells are looked up per lane and the coefficients
+ * gathered into lane order, then the polynomial is evaluated in vector form.
+ * Results are the same as
+ * {@link UTM33ToLatLng#convert(double[], double[], double[], double[], int, int)}.
+ * An experiment, loaded by {@link ExperimentalConverters#vectorized()}.
+ */
+class VectorBatchConverter implements BatchConverter {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    VectorBatchConverter() {
+        // Fail here rather than on first use if the Vector API is unusable
+        DoubleVector.zero(SPECIES);
+    }
+
+    @Override
+    public void convert(double[] easting, double[] northing,
+            double[] latOut, double[] lngOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, latOut.length, lngOut.length);
+        if (UTM33ToLatLng.METRICS) {
+            long start = ConversionMetrics.startBatch(easting, northing, offset, length);
+            ConversionEvent event = ConversionMetrics.beginEvent();
+            convertRange(easting, northing, latOut, lngOut, offset, length);
+            ConversionMetrics.endBatch(event, start, length, "vectorized");
+            return;
+        }
+        convertRange(easting, northing, latOut, lngOut, offset, length);
+    }
+
+    private static void convertRange(double[] easting, double[] northing,
+            double[] latOut, double[] lngOut, int offset, int length) {
+        int lanes = SPECIES.length();
+        // Coefficients gathered per lane: coefficient c of lane l is at c * lanes + l
+        double[] latitudes = new double[9 * lanes];
+        double[] longitudes = new double[9 * lanes];
+        double[] x = new double[lanes];
+        double[] y = new double[lanes];
+        int k = offset;
+        for (; k + lanes <= offset + length; k += lanes) {
+            int l = 0;
+            for (; l < lanes; l++) {
+                int e = UTM33ToLatLng.floor(easting[k + l]);
+                int n = UTM33ToLatLng.floor(northing[k + l]);
+                int i = UTM33ToLatLng.index(e, n);
+                if (!UTM33ToLatLng.covered(i)) {
+                    break;
+                }
+                x[l] = (easting[k + l] - e) * (1.0 / UTM33ToLatLng.GRANULARITY);
+                y[l] = (northing[k + l] - n) * (1.0 / UTM33ToLatLng.GRANULARITY);
+                for (int c = 0; c < 9; c++) {
+                    latitudes[c * lanes + l] = UTM33ToLatLng.Tables.LATITUDE_COEFFICIENTS[i * 9 + c];
+                    longitudes[c * lanes + l] = UTM33ToLatLng.Tables.LONGITUDE_COEFFICIENTS[i * 9 + c];
+                }
+            }
+            if (l < lanes) {
+                // Vectors with points outside the grid are converted one by one
+                UTM33ToLatLng.convertRange(easting, northing, latOut, lngOut, k, lanes);
+                continue;
+            }
+            DoubleVector xv = DoubleVector.fromArray(SPECIES, x, 0);
+            DoubleVector yv = DoubleVector.fromArray(SPECIES, y, 0);
+            evaluate(latitudes, xv, yv).intoArray(latOut, k);
+            evaluate(longitudes, xv, yv).intoArray(lngOut, k);
+        }
+        UTM33ToLatLng.convertRange(easting, northing, latOut, lngOut, k, offset + length - k);
+    }
+
+    /**
+     * Vector form of UTM33ToLatLng.evaluate, over gathered coefficients.
+     */
+    private static DoubleVector evaluate(double[] coefficients, DoubleVector x, DoubleVector y) {
+        DoubleVector y2 = coefficient(coefficients, 0).fma(x, coefficient(coefficients, 1))
+                .fma(x, coefficient(coefficients, 2));
+        DoubleVector y1 = coefficient(coefficients, 3).fma(x, coefficient(coefficients, 4))
+                .fma(x, coefficient(coefficients, 5));
+        DoubleVector y0 = coefficient(coefficients, 6).fma(x, coefficient(coefficients, 7))
+                .fma(x, coefficient(coefficients, 8));
+        return y2.fma(y, y1).fma(y, y0);
+    }
+
+    private static DoubleVector coefficient(double[] coefficients, int c) {
+        return DoubleVector.fromArray(SPECIES, coefficients, c * SPECIES.length());
+    }
+}
@@ -0,0 +1,22 @@
+package org.pvv.larschri.geo;
+
+/**
+ * Batch conversion of "UTM33" coordinates from Kartverket to
+ * longitude/latitude. See {@link UTM33ToLatLng#convert(double[], double[], double[], double[], int, int)}.
+ */
+public interface BatchConverter {
+    /**
+     * Convert the points at offset to offset + length - 1 in easting and
+     * northing, and store the results at the same positions in latOut and
+     * lngOut.
+     */
+    void convert(double[] easting, double[] northing,
+            double[] latOut, double[] lngOut, int offset, int length);
+
+    /**
+     * The plain scalar converter.
+     */
+    static BatchConverter scalar() {
+        return UTM33ToLatLng::convert;
+    }
+}
@@ -0,0 +1,61 @@
+package org.pvv.larschri.geo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A column of doubles in a {@link ByteBuffer}, for converting coordinates
+ * where they are, like in direct buffers of Arrow or Parquet columns, without
+ * copying them to arrays. Value k is at byte offset + k * stride from the
+ * start of the buffer, in the byte order of the buffer. The position of the
+ * buffer is ignored, and the values must be within its limit.
+ * <p>
+ * A plain column has stride 8. Interleaved easting, northing pairs are two
+ * columns over the same buffer, at offsets 0 and 8 with stride 16.
+ */
+public final class Column {
+    /**
+     * The buffer, used as it is, not copied.
+     */
+    public final ByteBuffer buffer;
+
+    /**
+     * Byte offset of the first value, and bytes from one value to the next.
+     */
+    public final int offset;
+    public final int stride;
+
+    private Column(ByteBuffer buffer, int offset, int stride) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.stride = stride;
+    }
+
+    /**
+     * A column with the given byte offset and stride. Values may not
+     * overlap, so stride must be at least 8.
+     */
+    public static Column of(ByteBuffer buffer, int offset, int stride) {
+        if (offset < 0 || stride < 8) {
+            throw new IllegalArgumentException("Invalid column offset " + offset + ", stride " + stride);
+        }
+        return new Column(buffer, offset, stride);
+    }
+
+    /**
+     * A plain column of consecutive doubles from the start of the buffer.
+     */
+    public static Column of(ByteBuffer buffer) {
+        return of(buffer, 0, 8);
+    }
+
+    /**
+     * Throw {@link IndexOutOfBoundsException} unless the first length values
+     * are within the limit of the buffer.
+     */
+    void checkRange(int length) {
+        if (length < 0 || length > 0 && offset + (long) (length - 1) * stride + 8 > buffer.limit()) {
+            throw new IndexOutOfBoundsException("length " + length + ", offset " + offset
+                    + ", stride " + stride + ", limit " + buffer.limit());
+        }
+    }
+}
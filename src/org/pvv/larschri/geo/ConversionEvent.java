@@ -0,0 +1,22 @@
+package org.pvv.larschri.geo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a batch conversion, emitted when {@link ConversionMetrics}
+ * are enabled. Its duration is the time spent converting.
+ */
+@Name("org.pvv.larschri.geo.BatchConversion")
+@Label("UTM33 Batch Conversion")
+@Category("UTM33")
+@Description("A batch of coordinates converted between UTM33 and latitude, longitude")
+class ConversionEvent extends jdk.jfr.Event {
+    @Label("Converter")
+    String converter;
+
+    @Label("Points")
+    int points;
+}
@@ -0,0 +1,223 @@
+package org.pvv.larschri.geo;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional metrics for the conversions by {@link UTM33ToLatLng},
+ * {@link TrackConverter}, {@link FixedPoint} and the vectorized converter: the number
+ * of conversions, hits per grid cell, points outside the grid, and histograms
+ * of batch sizes and batch latencies. Each batch also emits a JFR event,
+ * org.pvv.larschri.geo.BatchConversion. Conversions by a {@link Grid} and by
+ * {@link LatLngToUTM33} are counted and timed too, but not in the cells
+ * and points outside the grid, which are for the built-in grid.
+ * <p>
+ * Enabled by starting the JVM with -Dorg.pvv.larschri.geo.metrics=true.
+ * The flag is a constant to the JIT compiler, so when disabled the
+ * instrumentation is compiled away, and this class is not even loaded.
+ * Counters are {@link LongAdder}s, which are striped so that threads do not
+ * contend.
+ */
+public final class ConversionMetrics {
+    private ConversionMetrics() {
+    }
+
+    /**
+     * Counters, and histograms with a counter per bucket, see
+     * {@link Snapshot}.
+     */
+    private static final LongAdder CONVERSIONS = new LongAdder();
+    private static final LongAdder OUTSIDE_GRID = new LongAdder();
+    private static final LongAdder BATCHES = new LongAdder();
+    private static final LongAdder[] CELL_HITS = adders(UTM33ToLatLng.COLUMNS * UTM33ToLatLng.ROWS);
+    private static final LongAdder[] BATCH_SIZES = adders(33);
+    private static final LongAdder[] BATCH_NANOS = adders(65);
+
+    /**
+     * Whether metrics are collected, see the class documentation.
+     */
+    public static boolean enabled() {
+        return UTM33ToLatLng.METRICS;
+    }
+
+    /**
+     * Type for a snapshot of the metrics. Histogram bucket b counts values v
+     * with 2^(b - 1) <= v < 2^b, and bucket 0 counts zeros.
+     */
+    public static class Snapshot {
+        /**
+         * Points converted, and how many of them were outside the grid.
+         */
+        public final long conversions;
+        public final long outsideGrid;
+
+        /**
+         * Points converted in each cell, by grid index. A cell at easting e
+         * and northing n has index
+         * (n - minNorthing) / granularity * columns + (e - minEasting) / granularity,
+         * see {@link Grid#builtIn()} for the grid.
+         */
+        public final long[] cellHits;
+
+        /**
+         * Number of batches, and histograms of their sizes in points and
+         * their latencies in nanoseconds.
+         */
+        public final long batches;
+        public final long[] batchSizes;
+        public final long[] batchNanos;
+
+        private Snapshot(long conversions, long outsideGrid, long[] cellHits,
+                long batches, long[] batchSizes, long[] batchNanos) {
+            this.conversions = conversions;
+            this.outsideGrid = outsideGrid;
+            this.cellHits = cellHits;
+            this.batches = batches;
+            this.batchSizes = batchSizes;
+            this.batchNanos = batchNanos;
+        }
+    }
+
+    /**
+     * The current values of the metrics. All zero when not enabled.
+     */
+    public static Snapshot snapshot() {
+        return new Snapshot(CONVERSIONS.sum(), OUTSIDE_GRID.sum(), sums(CELL_HITS),
+                BATCHES.sum(), sums(BATCH_SIZES), sums(BATCH_NANOS));
+    }
+
+    /**
+     * Reset all the metrics to zero. Conversions running concurrently may
+     * or may not be counted.
+     */
+    public static void reset() {
+        CONVERSIONS.reset();
+        OUTSIDE_GRID.reset();
+        BATCHES.reset();
+        for (LongAdder[] adders : new LongAdder[][] {CELL_HITS, BATCH_SIZES, BATCH_NANOS}) {
+            for (LongAdder adder : adders) {
+                adder.reset();
+            }
+        }
+    }
+
+    /**
+     * Count a point that is about to be converted. Called before the
+     * conversion, since the output may overwrite the input.
+     */
+    static void point(double easting, double northing) {
+        int i = UTM33ToLatLng.index(UTM33ToLatLng.floor(easting), UTM33ToLatLng.floor(northing));
+        CONVERSIONS.increment();
+        if (UTM33ToLatLng.covered(i)) {
+            CELL_HITS[i].increment();
+        } else {
+            OUTSIDE_GRID.increment();
+        }
+    }
+
+    /**
+     * Count conversions that are not in the built-in grid.
+     */
+    static void count(int points) {
+        CONVERSIONS.add(points);
+    }
+
+    /**
+     * Same as {@link #startBatch(double[], double[], int, int)}, for
+     * conversions that are not in the built-in grid.
+     */
+    static long startBatch(int length) {
+        count(length);
+        return System.nanoTime();
+    }
+
+    /**
+     * Count the points of a batch, from offset to offset + length - 1, and
+     * start timing it. Pass the result to
+     * {@link #endBatch(ConversionEvent, long, int, String)}, with the event
+     * from {@link #beginEvent()}.
+     */
+    static long startBatch(double[] easting, double[] northing, int offset, int length) {
+        points(easting, northing, offset, length);
+        return System.nanoTime();
+    }
+
+    /**
+     * Count the points from offset to offset + length - 1, for batches that
+     * are converted in blocks.
+     */
+    static void points(double[] easting, double[] northing, int offset, int length) {
+        for (int k = offset; k < offset + length; k++) {
+            point(easting[k], northing[k]);
+        }
+    }
+
+    /**
+     * Same as {@link #startBatch(double[], double[], int, int)}, for
+     * easting, northing pairs from offset.
+     */
+    static long startLine(double[] coordinates, int offset, int points) {
+        for (int k = offset; k < offset + 2 * points; k += 2) {
+            point(coordinates[k], coordinates[k + 1]);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Same as {@link #startBatch(double[], double[], int, int)}, for the
+     * first length values of columns.
+     */
+    static long startColumns(Column easting, Column northing, int length) {
+        for (int k = 0; k < length; k++) {
+            point(easting.buffer.getDouble(easting.offset + k * easting.stride),
+                    northing.buffer.getDouble(northing.offset + k * northing.stride));
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * A JFR event to begin before converting a batch, which does nothing
+     * unless JFR records it.
+     */
+    static ConversionEvent beginEvent() {
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Record a converted batch of length points, started at the given time,
+     * and commit its event.
+     */
+    static void endBatch(ConversionEvent event, long start, int length, String converter) {
+        long nanos = System.nanoTime() - start;
+        BATCHES.increment();
+        BATCH_SIZES[bucket(length)].increment();
+        BATCH_NANOS[bucket(nanos)].increment();
+        event.end();
+        if (event.shouldCommit()) {
+            event.converter = converter;
+            event.points = length;
+            event.commit();
+        }
+    }
+
+    private static int bucket(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    private static LongAdder[] adders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+}
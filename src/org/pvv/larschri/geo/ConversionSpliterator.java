@@ -0,0 +1,81 @@
+package org.pvv.larschri.geo;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Spliterator over the indices of points that converts each point into the
+ * output arrays before its index is passed on. Splits in halves, and converts
+ * in blocks with the batch conversion. Only traversed by forEach in
+ * {@link UTM33ToLatLng#convertParallel(double[], double[], double[], double[], IntConsumer)},
+ * so that every point is converted even though it is SIZED. It is not
+ * IMMUTABLE, since it writes to the output arrays.
+ */
+class ConversionSpliterator implements Spliterator.OfInt {
+    /**
+     * Points are converted in blocks of this size, and ranges smaller than
+     * twice this are not split.
+     */
+    static final int BLOCK_SIZE = 1024;
+
+    private final double[] easting, northing, latOut, lngOut;
+    private int index;
+    private final int end;
+
+    ConversionSpliterator(double[] easting, double[] northing, double[] latOut, double[] lngOut, int index, int end) {
+        this.easting = easting;
+        this.northing = northing;
+        this.latOut = latOut;
+        this.lngOut = lngOut;
+        this.index = index;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        if (index >= end) {
+            return false;
+        }
+        UTM33ToLatLng.convert(easting, northing, latOut, lngOut, index, 1);
+        action.accept(index++);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        while (index < end) {
+            int blockEnd = Math.min(index + BLOCK_SIZE, end);
+            UTM33ToLatLng.convert(easting, northing, latOut, lngOut, index, blockEnd - index);
+            for (; index < blockEnd; index++) {
+                action.accept(index);
+            }
+        }
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+        int middle = (index + end) >>> 1;
+        if (end - index < 2 * BLOCK_SIZE) {
+            return null;
+        }
+        Spliterator.OfInt prefix = new ConversionSpliterator(easting, northing, latOut, lngOut, index, middle);
+        index = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | DISTINCT | SORTED | NONNULL;
+    }
+
+    @Override
+    public Comparator<? super Integer> getComparator() {
+        return null;
+    }
+}
@@ -0,0 +1,27 @@
+package org.pvv.larschri.geo;
+
+/**
+ * Converters that are kept for benchmarks and further work, but are not part
+ * of the public API, since they are not faster than
+ * {@link BatchConverter#scalar()}.
+ */
+final class ExperimentalConverters {
+    private ExperimentalConverters() {
+    }
+
+    /**
+     * A converter using the Java Vector API (jdk.incubator.vector), or the
+     * scalar converter if the Vector API or the vectorized classes are not
+     * available. The vectorized classes are built separately from src-vector,
+     * and the JVM must be started with --add-modules jdk.incubator.vector.
+     * Only the polynomial is in vector form, and the cell lookup is per lane.
+     */
+    static BatchConverter vectorized() {
+        try {
+            return (BatchConverter) Class.forName("org.pvv.larschri.geo.VectorBatchConverter")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return BatchConverter.scalar();
+        }
+    }
+}
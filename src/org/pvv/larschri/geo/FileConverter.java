@@ -0,0 +1,222 @@
+package org.pvv.larschri.geo;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Converts files of "UTM33" coordinates to files of latitude/longitude. The
+ * input is memory mapped and split into chunks on record boundaries, the
+ * chunks are converted in parallel and written in order. Memory use depends
+ * on the chunk size and number of threads, not on the file size.
+ */
+public class FileConverter {
+    /**
+     * File formats. CSV has one point per line, "easting,northing" in and
+     * "latitude,longitude" out. Any further columns are kept as they are.
+     * Lines may end with LF or CRLF, which is kept. Blank lines are copied
+     * as they are. If the first line of the file is not numbers, it is
+     * taken as a header, and its first two columns are replaced by
+     * "latitude,longitude".
+     * BINARY has pairs of little-endian doubles, easting and northing in and
+     * latitude and longitude out.
+     */
+    public enum Format { CSV, BINARY }
+
+    /**
+     * Size of the chunks the input is split into, and the maximum length of
+     * a line in CSV.
+     */
+    static final int CHUNK_SIZE = 1 << 24;
+    static final int MAX_LINE = 1 << 16;
+
+    private static final int RECORD_SIZE = 16;
+
+    // Kinds of CSV lines
+    private static final byte POINT = 0;
+    private static final byte BLANK = 1;
+    private static final byte HEADER = 2;
+
+    /**
+     * Convert input to output, using the given number of threads. The
+     * output must not be the same file as the input.
+     */
+    public static void convert(Path input, Path output, Format format, int threads) throws IOException {
+        if (Files.exists(output) && Files.isSameFile(input, output)) {
+            throw new IOException(output + ": output is the same file as the input");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            if (format == Format.BINARY && size % RECORD_SIZE != 0) {
+                throw new IOException(input + ": size is not a multiple of " + RECORD_SIZE);
+            }
+            long chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+            for (long chunk = 0; chunk < chunks || !pending.isEmpty(); ) {
+                // Keep a bounded number of chunks in flight, and write them in order
+                if (chunk < chunks && pending.size() < 2 * threads) {
+                    long start = chunk * CHUNK_SIZE;
+                    pending.add(executor.submit(() -> format == Format.CSV
+                            ? convertCsv(in, start, size) : convertBinary(in, start, size)));
+                    chunk++;
+                } else {
+                    ByteBuffer result = pending.remove().get();
+                    while (result.hasRemaining()) {
+                        out.write(result);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Convert the binary chunk starting at start.
+     */
+    private static ByteBuffer convertBinary(FileChannel in, long start, long size) throws IOException {
+        int length = (int) Math.min(CHUNK_SIZE, size - start);
+        MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, start, length);
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        int points = length / RECORD_SIZE;
+        ByteBuffer result = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        UTM33ToLatLng.convert(Column.of(map, 0, RECORD_SIZE), Column.of(map, 8, RECORD_SIZE),
+                Column.of(result, 0, RECORD_SIZE), Column.of(result, 8, RECORD_SIZE), points);
+        return result;
+    }
+
+    /**
+     * Convert the lines of CSV that start within the chunk starting at
+     * start. The line that ends in the chunk is done by the previous chunk.
+     */
+    private static ByteBuffer convertCsv(FileChannel in, long start, long size) throws IOException {
+        long mapStart = Math.max(start - 1, 0);
+        int length = (int) Math.min(CHUNK_SIZE + MAX_LINE + 1, size - mapStart);
+        MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, mapStart, length);
+        int end = (int) Math.min(start + CHUNK_SIZE - mapStart, length);
+        int first = (int) (start - mapStart);
+        if (start > 0) {
+            // Skip the rest of a line starting in the previous chunk
+            while (first < end && map.get(first - 1) != '\n') {
+                first++;
+            }
+        }
+
+        int lines = 0;
+        for (int i = first; i < end; i++) {
+            if (map.get(i) == '\n') {
+                lines++;
+            }
+        }
+        lines++;
+        double[] easting = new double[lines];
+        double[] northing = new double[lines];
+        int[] lineStarts = new int[lines + 1];
+        int[] restStarts = new int[lines];
+        byte[] kinds = new byte[lines];
+        int line = 0;
+        byte[] bytes = new byte[MAX_LINE];
+        for (int i = first; i < end; line++) {
+            int lineEnd = i;
+            while (lineEnd < length && map.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd - i > MAX_LINE || lineEnd == length && mapStart + length < size) {
+                throw new IOException("Line longer than " + MAX_LINE + " bytes at offset " + (mapStart + i));
+            }
+            // A CR before the LF is part of the line terminator, and is
+            // copied with it whether or not there are further columns
+            int textEnd = lineEnd > i && map.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            for (int j = i; j < textEnd; j++) {
+                bytes[j - i] = map.get(j);
+            }
+            String text = new String(bytes, 0, textEnd - i, StandardCharsets.ISO_8859_1);
+            int comma = text.indexOf(',');
+            int rest = comma < 0 ? -1 : text.indexOf(',', comma + 1);
+            lineStarts[line] = i;
+            restStarts[line] = rest < 0 ? textEnd : i + rest;
+            if (text.trim().isEmpty()) {
+                kinds[line] = BLANK;
+                restStarts[line] = i;
+                easting[line] = northing[line] = Double.NaN;
+            } else {
+                try {
+                    easting[line] = Double.parseDouble(text.substring(0, Math.max(comma, 0)));
+                    northing[line] = Double.parseDouble(rest < 0 ? text.substring(comma + 1) : text.substring(comma + 1, rest));
+                } catch (NumberFormatException e) {
+                    if (mapStart + i != 0) {
+                        throw new IOException("Invalid line at offset " + (mapStart + i) + ": " + text, e);
+                    }
+                    kinds[line] = HEADER;
+                    easting[line] = northing[line] = Double.NaN;
+                }
+            }
+            i = lineEnd + 1;
+            lineStarts[line + 1] = Math.min(i, length);
+        }
+        UTM33ToLatLng.convert(easting, northing, easting, northing, 0, line);
+
+        StringBuilder result = new StringBuilder(end - first + 64);
+        for (int k = 0; k < line; k++) {
+            if (kinds[k] == POINT) {
+                result.append(easting[k]).append(',').append(northing[k]);
+            } else if (kinds[k] == HEADER) {
+                result.append("latitude,longitude");
+            }
+            for (int i = restStarts[k]; i < lineStarts[k + 1]; i++) {
+                result.append((char) (map.get(i) & 0xff));
+            }
+        }
+        return ByteBuffer.wrap(result.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Command line entry point, see usage below.
+     */
+    public static void main(String[] args) throws IOException {
+        Format format = Format.CSV;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            if (args[i].equals("--binary")) {
+                format = Format.BINARY;
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                break;
+            }
+        }
+        if (args.length - i != 2 || threads < 1) {
+            System.err.println("Usage: FileConverter [--binary] [--threads N] INPUT OUTPUT");
+            System.err.println("Converts UTM33 easting,northing to latitude,longitude. Input is CSV");
+            System.err.println("unless --binary is given for pairs of little-endian doubles.");
+            System.exit(2);
+        }
+        convert(Paths.get(args[i]), Paths.get(args[i + 1]), format, threads);
+    }
+}
@@ -0,0 +1,256 @@
+package org.pvv.larschri.geo;
+
+/**
+ * Batch conversion with fixed-point input and compact output, to save memory
+ * and bandwidth on large datasets. Input is int or long eastings and
+ * northings in units of 1 / unitsPerMeter meters, like 100 for centimeters
+ * and 1000 for millimeters. Output is float, int micro-degrees, or a long per
+ * point with both packed. Points are converted in blocks that stay in the
+ * L1 cache, with the same results as
+ * {@link UTM33ToLatLng#convert(double[], double[], double[], double[], int, int)}.
+ * <p>
+ * Rounding is well defined. A fixed-point input value of magnitude up to
+ * 2^53 becomes value / unitsPerMeter meters, correctly rounded. With
+ * unitsPerMeter a power of ten, this is the same double as parsing the
+ * decimal value, like "6851888.74" for 685188874 centimeters. Larger long
+ * values, beyond 9000 km even in nanometers, are first rounded to a double,
+ * so the quotient may be off by one in the last bit.
+ * Float output is the nearest float. Micro-degree output is degrees * 1e6
+ * rounded to the nearest int, with halves to even like {@link Math#rint(double)},
+ * and NaN becomes {@link #INVALID}. Both are the IEEE 754 default rounding.
+ */
+public final class FixedPoint {
+    private FixedPoint() {
+    }
+
+    /**
+     * Micro-degrees for a point that was converted to NaN. Not a valid
+     * latitude or longitude.
+     */
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    /**
+     * Number of points converted at a time.
+     */
+    private static final int BLOCK = 256;
+
+    /**
+     * Same as {@link UTM33ToLatLng#convert(double[], double[], double[], double[], int, int)},
+     * with fixed-point easting and northing.
+     */
+    public static void convert(int[] easting, int[] northing, double unitsPerMeter,
+            double[] latOut, double[] lngOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, latOut.length, lngOut.length);
+        convertBlocks(units(easting, unitsPerMeter), units(northing, unitsPerMeter),
+                doubles(latOut, lngOut), offset, length);
+    }
+
+    public static void convert(long[] easting, long[] northing, double unitsPerMeter,
+            double[] latOut, double[] lngOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, latOut.length, lngOut.length);
+        convertBlocks(units(easting, unitsPerMeter), units(northing, unitsPerMeter),
+                doubles(latOut, lngOut), offset, length);
+    }
+
+    /**
+     * Same as {@link UTM33ToLatLng#convert(double[], double[], double[], double[], int, int)},
+     * with float latitude and longitude.
+     */
+    public static void convertToFloat(double[] easting, double[] northing,
+            float[] latOut, float[] lngOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, latOut.length, lngOut.length);
+        convertBlocks(meters(easting), meters(northing), floats(latOut, lngOut), offset, length);
+    }
+
+    public static void convertToFloat(int[] easting, int[] northing, double unitsPerMeter,
+            float[] latOut, float[] lngOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, latOut.length, lngOut.length);
+        convertBlocks(units(easting, unitsPerMeter), units(northing, unitsPerMeter),
+                floats(latOut, lngOut), offset, length);
+    }
+
+    public static void convertToFloat(long[] easting, long[] northing, double unitsPerMeter,
+            float[] latOut, float[] lngOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, latOut.length, lngOut.length);
+        convertBlocks(units(easting, unitsPerMeter), units(northing, unitsPerMeter),
+                floats(latOut, lngOut), offset, length);
+    }
+
+    /**
+     * Same as {@link UTM33ToLatLng#convert(double[], double[], double[], double[], int, int)},
+     * with latitude and longitude in micro-degrees.
+     */
+    public static void convertToMicroDegrees(double[] easting, double[] northing,
+            int[] latOut, int[] lngOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, latOut.length, lngOut.length);
+        convertBlocks(meters(easting), meters(northing), microDegrees(latOut, lngOut), offset, length);
+    }
+
+    public static void convertToMicroDegrees(int[] easting, int[] northing, double unitsPerMeter,
+            int[] latOut, int[] lngOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, latOut.length, lngOut.length);
+        convertBlocks(units(easting, unitsPerMeter), units(northing, unitsPerMeter),
+                microDegrees(latOut, lngOut), offset, length);
+    }
+
+    public static void convertToMicroDegrees(long[] easting, long[] northing, double unitsPerMeter,
+            int[] latOut, int[] lngOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, latOut.length, lngOut.length);
+        convertBlocks(units(easting, unitsPerMeter), units(northing, unitsPerMeter),
+                microDegrees(latOut, lngOut), offset, length);
+    }
+
+    /**
+     * Same as {@link UTM33ToLatLng#convert(double[], double[], double[], double[], int, int)},
+     * with latitude and longitude in micro-degrees packed into one long per
+     * point, see {@link #pack(int, int)}.
+     */
+    public static void convertToPacked(double[] easting, double[] northing, long[] out, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, out.length);
+        convertBlocks(meters(easting), meters(northing), packed(out), offset, length);
+    }
+
+    public static void convertToPacked(int[] easting, int[] northing, double unitsPerMeter,
+            long[] out, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, out.length);
+        convertBlocks(units(easting, unitsPerMeter), units(northing, unitsPerMeter),
+                packed(out), offset, length);
+    }
+
+    public static void convertToPacked(long[] easting, long[] northing, double unitsPerMeter,
+            long[] out, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, out.length);
+        convertBlocks(units(easting, unitsPerMeter), units(northing, unitsPerMeter),
+                packed(out), offset, length);
+    }
+
+    /**
+     * Latitude in the high 32 bits and longitude in the low 32 bits, both in
+     * micro-degrees.
+     */
+    public static long pack(int latitude, int longitude) {
+        return (long) latitude << 32 | longitude & 0xffffffffL;
+    }
+
+    /**
+     * Latitude and longitude in micro-degrees of a packed point.
+     */
+    public static int latitude(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int longitude(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Degrees rounded to micro-degrees, see the class documentation.
+     */
+    static int microDegrees(double degrees) {
+        return Double.isNaN(degrees) ? INVALID : (int) Math.rint(degrees * 1e6);
+    }
+
+    /**
+     * Values of an input array, read a block at a time as meters.
+     */
+    private interface Input {
+        void read(int offset, double[] out, int count);
+    }
+
+    /**
+     * Output arrays, written a block at a time from latitudes and longitudes.
+     */
+    private interface Output {
+        void write(double[] latitudes, double[] longitudes, int offset, int count);
+    }
+
+    private static Input meters(double[] values) {
+        return (offset, out, count) -> System.arraycopy(values, offset, out, 0, count);
+    }
+
+    private static Input units(int[] values, double unitsPerMeter) {
+        checkUnits(unitsPerMeter);
+        return (offset, out, count) -> {
+            for (int k = 0; k < count; k++) {
+                out[k] = values[offset + k] / unitsPerMeter;
+            }
+        };
+    }
+
+    private static Input units(long[] values, double unitsPerMeter) {
+        checkUnits(unitsPerMeter);
+        return (offset, out, count) -> {
+            for (int k = 0; k < count; k++) {
+                out[k] = values[offset + k] / unitsPerMeter;
+            }
+        };
+    }
+
+    private static void checkUnits(double unitsPerMeter) {
+        if (!(unitsPerMeter > 0 && unitsPerMeter < Double.POSITIVE_INFINITY)) {
+            throw new IllegalArgumentException("Invalid units per meter " + unitsPerMeter);
+        }
+    }
+
+    private static Output doubles(double[] latOut, double[] lngOut) {
+        return (latitudes, longitudes, offset, count) -> {
+            System.arraycopy(latitudes, 0, latOut, offset, count);
+            System.arraycopy(longitudes, 0, lngOut, offset, count);
+        };
+    }
+
+    private static Output floats(float[] latOut, float[] lngOut) {
+        return (latitudes, longitudes, offset, count) -> {
+            for (int k = 0; k < count; k++) {
+                latOut[offset + k] = (float) latitudes[k];
+                lngOut[offset + k] = (float) longitudes[k];
+            }
+        };
+    }
+
+    private static Output microDegrees(int[] latOut, int[] lngOut) {
+        return (latitudes, longitudes, offset, count) -> {
+            for (int k = 0; k < count; k++) {
+                latOut[offset + k] = microDegrees(latitudes[k]);
+                lngOut[offset + k] = microDegrees(longitudes[k]);
+            }
+        };
+    }
+
+    private static Output packed(long[] out) {
+        return (latitudes, longitudes, offset, count) -> {
+            for (int k = 0; k < count; k++) {
+                out[offset + k] = pack(microDegrees(latitudes[k]), microDegrees(longitudes[k]));
+            }
+        };
+    }
+
+    /**
+     * Convert a block at a time: read the input into double arrays, convert
+     * them in place, and write the output. The input and output are
+     * resolved to their array types once per call by the public methods.
+     */
+    private static void convertBlocks(Input easting, Input northing, Output out, int offset, int length) {
+        long start = 0;
+        ConversionEvent event = null;
+        if (UTM33ToLatLng.METRICS) {
+            start = System.nanoTime();
+            event = ConversionMetrics.beginEvent();
+        }
+        double[] x = new double[Math.min(length, BLOCK)];
+        double[] y = new double[x.length];
+        for (int block = offset; block < offset + length; block += BLOCK) {
+            int count = Math.min(BLOCK, offset + length - block);
+            easting.read(block, x, count);
+            northing.read(block, y, count);
+            if (UTM33ToLatLng.METRICS) {
+                ConversionMetrics.points(x, y, 0, count);
+            }
+            UTM33ToLatLng.convertRange(x, y, x, y, 0, count);
+            out.write(x, y, block, count);
+        }
+        if (UTM33ToLatLng.METRICS) {
+            ConversionMetrics.endBatch(event, start, length, "fixed-point");
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package org.pvv.larschri.geo;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Converts geometries in WKB and WKT, like Kartverket features, without
+ * decoding them into objects. WKB is converted in place in its buffer, and
+ * WKT is converted as a stream of text. Points, linestrings, polygons, the
+ * multi variants and geometry collections are supported, with Z and M in
+ * ISO and EWKB form. Z and M values and the rest of the text are kept as
+ * they are, except that an SRID, in EWKB or an EWKT prefix like
+ * "SRID=25833;", is replaced by {@link #WGS84}, the SRID of the output.
+ * <p>
+ * The output follows the GIS axis order for EPSG:4326, as in PostGIS and
+ * GeoJSON: x is longitude and y is latitude. The vertices of a ring or line
+ * are converted together by a {@link TrackConverter}, so that consecutive
+ * vertices in the same grid cell reuse its coefficients.
+ * <p>
+ * Not thread-safe, use one per thread.
+ */
+public class GeometryConverter {
+    /**
+     * WKB geometry types, without dimension flags.
+     */
+    private static final int POINT = 1;
+    private static final int LINESTRING = 2;
+    private static final int POLYGON = 3;
+    private static final int GEOMETRYCOLLECTION = 7;
+
+    /**
+     * EWKB flags in the geometry type.
+     */
+    private static final int EWKB_Z = 0x80000000;
+    private static final int EWKB_M = 0x40000000;
+    private static final int EWKB_SRID = 0x20000000;
+
+    /**
+     * SRID of latitude, longitude, which replaces the SRID of the input.
+     */
+    public static final int WGS84 = 4326;
+
+    /**
+     * Prefix of an SRID in EWKT.
+     */
+    private static final String SRID = "SRID=";
+
+    /**
+     * Vertices converted at a time, and the maximum pending WKT text.
+     */
+    private static final int BLOCK = 1024;
+    private static final int MAX_TEXT = 1 << 14;
+
+    /**
+     * Maximum nesting of WKB geometry collections, far deeper than real
+     * data, so that malformed input cannot overflow the stack.
+     */
+    static final int MAX_DEPTH = 64;
+
+    private final TrackConverter converter = new TrackConverter();
+
+    /**
+     * Decimals of WKT output, or -1 for the shortest text that reads back as
+     * the same double.
+     */
+    private final int decimals;
+
+    /**
+     * The last WKB array and its buffer, and views of the last WKB buffer in
+     * each byte order.
+     */
+    private byte[] array;
+    private ByteBuffer wrapped;
+    private ByteBuffer wkb;
+    private ByteBuffer bigEndian;
+    private ByteBuffer littleEndian;
+
+    /**
+     * WKT input, with the number of characters read before the buffer.
+     */
+    private Reader reader;
+    private final char[] input = new char[8192];
+    private int position;
+    private int limit;
+    private long consumed;
+
+    /**
+     * A number that continues past the end of the input buffer.
+     */
+    private char[] number = new char[64];
+
+    /**
+     * Vertices being converted, as easting, northing pairs.
+     */
+    private final double[] coordinates = new double[2 * BLOCK];
+
+    /**
+     * Pending WKT output: the text, and where in the text each vertex goes.
+     */
+    private final StringBuilder text = new StringBuilder();
+    private final int[] marks = new int[BLOCK];
+    private int vertices;
+    private final StringBuilder output = new StringBuilder();
+    private char[] chars = new char[0];
+
+    /**
+     * A converter writing WKT coordinates like {@link Double#toString(double)},
+     * with full precision.
+     */
+    public GeometryConverter() {
+        decimals = -1;
+    }
+
+    /**
+     * A converter writing WKT coordinates rounded to the given number of
+     * decimals, 0 to 9, without trailing zeros. This is several times faster
+     * than full precision, and 9 decimals is about 0.1 mm.
+     */
+    public GeometryConverter(int decimals) {
+        if (decimals < 0 || decimals > 9) {
+            throw new IllegalArgumentException("Invalid decimals " + decimals);
+        }
+        this.decimals = decimals;
+    }
+
+    /**
+     * Convert the WKB geometry at offset in buffer in place, and return the
+     * offset after it. Each geometry in the buffer is read in its own byte
+     * order, regardless of the order of the buffer. Malformed geometries
+     * throw {@link IllegalArgumentException} or
+     * {@link IndexOutOfBoundsException}, and may be partly converted.
+     */
+    public int convertWkb(ByteBuffer buffer, int offset) {
+        return convertWkb(buffer, offset, 0);
+    }
+
+    private int convertWkb(ByteBuffer buffer, int offset, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("WKB geometry collections nested deeper than " + MAX_DEPTH
+                    + " at offset " + offset);
+        }
+        ByteBuffer view = view(buffer, offset);
+        int type = view.getInt(offset + 1);
+        int position = offset + 5;
+        int dimensions = 2;
+        if ((type & EWKB_Z) != 0) {
+            dimensions++;
+        }
+        if ((type & EWKB_M) != 0) {
+            dimensions++;
+        }
+        if ((type & EWKB_SRID) != 0) {
+            view.putInt(position, WGS84);
+            position += 4;
+        }
+        type &= ~(EWKB_Z | EWKB_M | EWKB_SRID);
+        // ISO types are 1000 more with Z, 2000 with M and 3000 with both
+        dimensions += type / 1000 == 3 ? 2 : type / 1000 > 0 ? 1 : 0;
+        int stride = 8 * dimensions;
+        if (type >= 4000 || type % 1000 < POINT || type % 1000 > GEOMETRYCOLLECTION) {
+            throw new IllegalArgumentException("Invalid WKB geometry type " + view.getInt(offset + 1)
+                    + " at offset " + offset);
+        }
+        type %= 1000;
+        if (type == POINT) {
+            return convertVertices(view, position, 1, stride);
+        } else if (type == LINESTRING) {
+            return convertVertices(view, position + 4, count(view, position), stride);
+        } else if (type == POLYGON) {
+            int rings = count(view, position);
+            position += 4;
+            for (int ring = 0; ring < rings; ring++) {
+                position = convertVertices(view, position + 4, count(view, position), stride);
+            }
+            return position;
+        } else {
+            int parts = count(view, position);
+            position += 4;
+            for (int part = 0; part < parts; part++) {
+                position = convertWkb(buffer, position, depth + 1);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Convert all the WKB geometries in the array, one after another, in
+     * place.
+     */
+    public void convertWkb(byte[] wkb) {
+        convertWkb(wkb, 0, wkb.length);
+    }
+
+    /**
+     * Convert the WKB geometries from offset to offset + length in the
+     * array, one after another, in place. Nothing is allocated when the
+     * array is the same as in the last call, so a batch of features can be
+     * read into one array and converted without allocation.
+     */
+    public void convertWkb(byte[] wkb, int offset, int length) {
+        if (offset < 0 || length < 0 || length > wkb.length - offset) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length
+                    + ") out of bounds for length " + wkb.length);
+        }
+        if (wkb != array) {
+            array = wkb;
+            wrapped = ByteBuffer.wrap(wkb);
+        }
+        wrapped.limit(offset + length);
+        for (int position = offset; position < offset + length; ) {
+            position = convertWkb(wrapped, position, 0);
+        }
+    }
+
+    /**
+     * View of the buffer in the byte order given at offset, reused for the
+     * same buffer.
+     */
+    private ByteBuffer view(ByteBuffer buffer, int offset) {
+        if (buffer != wkb) {
+            wkb = buffer;
+            bigEndian = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+            littleEndian = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (buffer.limit() != bigEndian.limit()) {
+            bigEndian.limit(buffer.limit());
+            littleEndian.limit(buffer.limit());
+        }
+        byte order = buffer.get(offset);
+        if (order != 0 && order != 1) {
+            throw new IllegalArgumentException("Invalid WKB byte order " + order + " at offset " + offset);
+        }
+        return order == 0 ? bigEndian : littleEndian;
+    }
+
+    private static int count(ByteBuffer view, int position) {
+        int count = view.getInt(position);
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid WKB count " + count + " at offset " + position);
+        }
+        return count;
+    }
+
+    /**
+     * Convert vertices of the given stride from position in place, with
+     * longitude over easting and latitude over northing, and return the
+     * position after them. The vertices are copied to coordinates a block
+     * at a time, since the JIT compiler keeps the cell coefficients in
+     * registers for arrays, but not when writing to buffers.
+     */
+    private int convertVertices(ByteBuffer view, int position, int vertices, int stride) {
+        long end = position + (long) vertices * stride;
+        if (end > view.limit()) {
+            throw new IndexOutOfBoundsException("Invalid WKB vertex count " + vertices + " at offset " + position
+                    + ", limit " + view.limit());
+        }
+        for (int done = 0; done < vertices; done += BLOCK) {
+            int count = Math.min(BLOCK, vertices - done);
+            int block = position + done * stride;
+            for (int k = 0, p = block; k < count; k++, p += stride) {
+                coordinates[2 * k] = view.getDouble(p);
+                coordinates[2 * k + 1] = view.getDouble(p + 8);
+            }
+            converter.convertLine(coordinates, 0, count);
+            for (int k = 0, p = block; k < count; k++, p += stride) {
+                view.putDouble(p, coordinates[2 * k + 1]);
+                view.putDouble(p + 8, coordinates[2 * k]);
+            }
+        }
+        return (int) end;
+    }
+
+    /**
+     * Convert WKT text from in to out. The first two ordinates of each
+     * coordinate become longitude and latitude, and all other text is
+     * copied, except for the number of an EWKT SRID, which becomes
+     * {@link #WGS84}.
+     * Memory use does not depend on the size of the geometries. Malformed
+     * text throws {@link IOException}, and output up to it may have been
+     * written.
+     */
+    public void convertWkt(Reader in, Writer out) throws IOException {
+        reader = in;
+        position = limit = 0;
+        consumed = 0;
+        text.setLength(0);
+        vertices = 0;
+        try {
+            int depth = 0;
+            int ordinates = 0;
+            // Characters of "SRID=" just read outside parentheses
+            int srid = 0;
+            for (int c = read(); c >= 0; ) {
+                if (srid == SRID.length() && c >= '0' && c <= '9') {
+                    while (c >= '0' && c <= '9') {
+                        c = read();
+                    }
+                    text.append(WGS84);
+                    srid = 0;
+                    continue;
+                }
+                if (depth == 0) {
+                    int upper = Character.toUpperCase(c);
+                    if (srid == SRID.length() || upper != SRID.charAt(srid)) {
+                        srid = 0;
+                    }
+                    srid = upper == SRID.charAt(srid) ? srid + 1 : 0;
+                }
+                if (depth > 0 && isNumberStart(c)) {
+                    if (ordinates == 0) {
+                        c = readNumber(c, 0);
+                        while (Character.isWhitespace(c)) {
+                            c = read();
+                        }
+                        if (!isNumberStart(c)) {
+                            throw new IOException("Invalid WKT coordinate at offset " + offset());
+                        }
+                        c = readNumber(c, 1);
+                        marks[vertices++] = text.length();
+                        if (vertices == BLOCK) {
+                            flush(out);
+                        }
+                        ordinates = 2;
+                    } else {
+                        while (isNumberPart(c)) {
+                            text.append((char) c);
+                            c = read();
+                        }
+                        ordinates++;
+                    }
+                    continue;
+                }
+                if (c == '(') {
+                    depth++;
+                    ordinates = 0;
+                } else if (c == ',') {
+                    ordinates = 0;
+                } else if (c == ')') {
+                    if (--depth < 0) {
+                        throw new IOException("Unbalanced WKT parenthesis at offset " + offset());
+                    }
+                    ordinates = 0;
+                }
+                text.append((char) c);
+                if (text.length() >= MAX_TEXT) {
+                    flush(out);
+                }
+                c = read();
+            }
+            if (depth != 0) {
+                throw new IOException("Unbalanced WKT parentheses at end of input");
+            }
+            flush(out);
+        } finally {
+            reader = null;
+        }
+    }
+
+    /**
+     * Same as {@link #convertWkt(Reader, Writer)} for a string.
+     */
+    public String convertWkt(String wkt) {
+        StringWriter out = new StringWriter(wkt.length() + 16);
+        try {
+            convertWkt(new StringReader(wkt), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Convert the pending vertices, and write them and the pending text.
+     */
+    private void flush(Writer out) throws IOException {
+        if (vertices > 0) {
+            converter.convertLine(coordinates, 0, vertices);
+        }
+        int from = 0;
+        for (int v = 0; v < vertices; v++) {
+            output.append(text, from, marks[v]);
+            append(coordinates[2 * v + 1]);
+            output.append(' ');
+            append(coordinates[2 * v]);
+            from = marks[v];
+        }
+        output.append(text, from, text.length());
+        if (chars.length < output.length()) {
+            chars = new char[Math.max(output.length(), 2 * chars.length)];
+        }
+        output.getChars(0, output.length(), chars, 0);
+        out.write(chars, 0, output.length());
+        output.setLength(0);
+        text.setLength(0);
+        vertices = 0;
+    }
+
+    /**
+     * Append value to the output with the decimals of this converter.
+     */
+    private void append(double value) {
+        if (decimals < 0 || !(Math.abs(value) < 1e9)) {
+            output.append(value);
+            return;
+        }
+        long scale = (long) POWERS_OF_TEN[decimals];
+        long scaled = (long) Math.rint(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            output.append('-');
+        }
+        output.append(scaled / scale);
+        long fraction = scaled % scale;
+        if (fraction != 0) {
+            int digits = decimals;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            output.append('.');
+            for (long power = (long) POWERS_OF_TEN[digits - 1]; power > fraction; power /= 10) {
+                output.append('0');
+            }
+            output.append(fraction);
+        }
+    }
+
+    /**
+     * The next character of the input, or -1 at the end.
+     */
+    private int read() throws IOException {
+        if (position == limit) {
+            consumed += limit;
+            position = 0;
+            limit = Math.max(reader.read(input), 0);
+            if (limit == 0) {
+                return -1;
+            }
+        }
+        return input[position++];
+    }
+
+    private long offset() {
+        return consumed + position - 1;
+    }
+
+    private static boolean isNumberStart(int c) {
+        return c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.';
+    }
+
+    private static boolean isNumberPart(int c) {
+        return isNumberStart(c) || c == 'e' || c == 'E';
+    }
+
+    /**
+     * Read the number starting with c into ordinate 0 or 1 of the pending
+     * vertex, and return the character after it. The number is parsed where
+     * it is in the input buffer, and only copied if it continues past the
+     * end of the buffer.
+     */
+    private int readNumber(int c, int ordinate) throws IOException {
+        int start = position - 1;
+        int end = position;
+        while (end < limit && isNumberPart(input[end])) {
+            end++;
+        }
+        double value;
+        if (end < limit) {
+            value = parseNumber(input, start, end);
+            position = end;
+            c = read();
+        } else {
+            int length = 0;
+            for (; isNumberPart(c); c = read()) {
+                if (length == number.length) {
+                    number = Arrays.copyOf(number, 2 * length);
+                }
+                number[length++] = (char) c;
+            }
+            value = parseNumber(number, 0, length);
+        }
+        coordinates[2 * vertices + ordinate] = value;
+        return c;
+    }
+
+    /**
+     * The number in chars from start to end, which gives the same double as
+     * {@link Double#parseDouble(String)}. Numbers with up to 15 significant
+     * digits and a power of ten up to 22, counting an exponent, are parsed
+     * directly: the digits and the power of ten are exact doubles, so one
+     * multiplication or division is correctly rounded. Others are parsed by
+     * Double.parseDouble.
+     */
+    private double parseNumber(char[] chars, int start, int end) throws IOException {
+        int i = start;
+        boolean negative = chars[i] == '-';
+        if (chars[i] == '-' || chars[i] == '+') {
+            i++;
+        }
+        // The value is digits * 10^zeros / 10^decimals, with the zeros after
+        // the last non-zero digit kept apart until another digit follows
+        long digits = 0;
+        int significant = 0;
+        int zeros = 0;
+        int decimals = 0;
+        int count = 0;
+        boolean fraction = false;
+        for (; i < end && significant <= 15; i++) {
+            char c = chars[i];
+            if (c == '.' && !fraction) {
+                fraction = true;
+                continue;
+            } else if (c < '0' || c > '9') {
+                break;
+            }
+            count++;
+            if (fraction) {
+                decimals++;
+            }
+            if (c == '0') {
+                zeros += digits != 0 ? 1 : 0;
+                continue;
+            }
+            for (significant += zeros + 1; zeros > 0; zeros--) {
+                digits *= 10;
+            }
+            digits = digits * 10 + (c - '0');
+        }
+        int exponent = zeros - decimals;
+        if (i < end && (chars[i] == 'e' || chars[i] == 'E') && count > 0) {
+            int j = i + 1;
+            boolean negativeExponent = j < end && chars[j] == '-';
+            if (j < end && (chars[j] == '-' || chars[j] == '+')) {
+                j++;
+            }
+            int power = 0;
+            int first = j;
+            for (; j < end && chars[j] >= '0' && chars[j] <= '9' && power < 1000; j++) {
+                power = power * 10 + (chars[j] - '0');
+            }
+            if (j > first) {
+                exponent += negativeExponent ? -power : power;
+                i = j;
+            }
+        }
+        if (i == end && count > 0 && significant <= 15 && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            double value = exponent >= 0 ? digits * POWERS_OF_TEN[exponent] : digits / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(chars, start, end - start));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid WKT number at offset " + offset(), e);
+        }
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+}
@@ -0,0 +1,236 @@
+package org.pvv.larschri.geo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A grid of known conversions with its own granularity, for example a finer
+ * grid than the built-in one used by {@link UTM33ToLatLng}. Grids can be
+ * stored in a compact binary file, which is memory mapped when loaded, so
+ * that large grids cost neither heap nor startup time.
+ * <p>
+ * The file is little-endian: the 8 bytes "UTM33GRD", then the ints version,
+ * granularity, minEasting, minNorthing, columns and rows, then all the
+ * latitudes and then all the longitudes as doubles, row by row. Missing points
+ * are NaN.
+ */
+public class Grid {
+    private static final byte[] MAGIC = {'U', 'T', 'M', '3', '3', 'G', 'R', 'D'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * Grid point (column, row) has easting minEasting + column * granularity
+     * and northing minNorthing + row * granularity. All in meters.
+     */
+    public final int granularity;
+    public final int minEasting;
+    public final int minNorthing;
+    public final int columns;
+    public final int rows;
+
+    private final DoubleBuffer latitudes;
+    private final DoubleBuffer longitudes;
+
+    private Grid(int granularity, int minEasting, int minNorthing, int columns, int rows,
+            DoubleBuffer latitudes, DoubleBuffer longitudes) {
+        if (granularity <= 0 || columns < 3 || rows < 3
+                || (long) columns * rows != latitudes.remaining()
+                || (long) columns * rows != longitudes.remaining()) {
+            throw new IllegalArgumentException("Invalid grid " + granularity + ", "
+                    + columns + "x" + rows + ", " + latitudes.remaining() + " points");
+        }
+        this.granularity = granularity;
+        this.minEasting = minEasting;
+        this.minNorthing = minNorthing;
+        this.columns = columns;
+        this.rows = rows;
+        this.latitudes = latitudes.slice();
+        this.longitudes = longitudes.slice();
+    }
+
+    /**
+     * Create a grid from latitudes and longitudes stored row by row. The
+     * arrays are used as they are, not copied.
+     */
+    public static Grid of(int granularity, int minEasting, int minNorthing, int columns, int rows,
+            double[] latitudes, double[] longitudes) {
+        return new Grid(granularity, minEasting, minNorthing, columns, rows,
+                DoubleBuffer.wrap(latitudes), DoubleBuffer.wrap(longitudes));
+    }
+
+    /**
+     * A copy of the built-in grid used by {@link UTM33ToLatLng}.
+     */
+    public static Grid builtIn() {
+        return of(UTM33ToLatLng.GRANULARITY, UTM33ToLatLng.MIN_EASTING, UTM33ToLatLng.MIN_NORTHING,
+                UTM33ToLatLng.COLUMNS, UTM33ToLatLng.ROWS,
+                UTM33ToLatLng.Tables.LATITUDES.clone(), UTM33ToLatLng.Tables.LONGITUDES.clone());
+    }
+
+    /**
+     * Load a grid from a file, see the class documentation for the format.
+     * The file is memory mapped, and must not be modified while in use.
+     */
+    public static Grid load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The header is read and checked before mapping, since a file
+            // over 2 GB cannot be mapped into one buffer
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException(path + ": not a grid file");
+                }
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header.get(i) != MAGIC[i]) {
+                    throw new IOException(path + ": not a grid file");
+                }
+            }
+            if (header.getInt(8) != VERSION) {
+                throw new IOException(path + ": unsupported grid file version " + header.getInt(8));
+            }
+            int granularity = header.getInt(12);
+            int minEasting = header.getInt(16);
+            int minNorthing = header.getInt(20);
+            int columns = header.getInt(24);
+            int rows = header.getInt(28);
+            long points = (long) columns * rows;
+            long size = channel.size();
+            if (columns < 0 || rows < 0 || size != HEADER_SIZE + 16 * points) {
+                throw new IOException(path + ": wrong size for a " + columns + "x" + rows + " grid");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + ": grid files larger than 2 GB are not supported");
+            }
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            map.position(HEADER_SIZE);
+            DoubleBuffer values = map.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            DoubleBuffer latitudes = values.duplicate();
+            latitudes.limit((int) points);
+            DoubleBuffer longitudes = values.duplicate();
+            longitudes.position((int) points);
+            try {
+                return new Grid(granularity, minEasting, minNorthing, columns, rows, latitudes, longitudes);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Write the grid to a file, see the class documentation for the format.
+     */
+    public void write(Path path) throws IOException {
+        int points = columns * rows;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 16 * points).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC).putInt(VERSION).putInt(granularity).putInt(minEasting).putInt(minNorthing)
+                .putInt(columns).putInt(rows);
+        for (int i = 0; i < points; i++) {
+            buffer.putDouble(latitudes.get(i));
+        }
+        for (int i = 0; i < points; i++) {
+            buffer.putDouble(longitudes.get(i));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link UTM33ToLatLng#convert(double, double)}, but with this
+     * grid. Easting and northing are rounded down to the grid. Points where
+     * any of the 3x3 grid points are missing are converted with the analytic
+     * projection, like points outside the built-in grid.
+     */
+    public UTM33ToLatLng.LatLng convert(double easting, double northing) {
+        if (UTM33ToLatLng.METRICS) {
+            ConversionMetrics.count(1);
+        }
+        double[] latLng = new double[2];
+        convert(easting, northing, latLng, 0, latLng, 1);
+        return new UTM33ToLatLng.LatLng(latLng[0], latLng[1]);
+    }
+
+    /**
+     * Same as {@link UTM33ToLatLng#convert(double[], double[], double[], double[], int, int)},
+     * but with this grid.
+     */
+    public void convert(double[] easting, double[] northing,
+            double[] latOut, double[] lngOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, latOut.length, lngOut.length);
+        if (UTM33ToLatLng.METRICS) {
+            long start = ConversionMetrics.startBatch(length);
+            ConversionEvent event = ConversionMetrics.beginEvent();
+            convertRange(easting, northing, latOut, lngOut, offset, length);
+            ConversionMetrics.endBatch(event, start, length, "grid");
+            return;
+        }
+        convertRange(easting, northing, latOut, lngOut, offset, length);
+    }
+
+    private void convertRange(double[] easting, double[] northing,
+            double[] latOut, double[] lngOut, int offset, int length) {
+        for (int k = offset; k < offset + length; k++) {
+            convert(easting[k], northing[k], latOut, k, lngOut, k);
+        }
+    }
+
+    /**
+     * Convert one point and store the result at latOut[latIndex] and
+     * lngOut[lngIndex].
+     */
+    private void convert(double easting, double northing,
+            double[] latOut, int latIndex, double[] lngOut, int lngIndex) {
+        double u = (easting - minEasting) / granularity;
+        double v = (northing - minNorthing) / granularity;
+        int i = index(u, v);
+        double latitude = interpolate(latitudes, i, u, v);
+        double longitude = interpolate(longitudes, i, u, v);
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            TransverseMercator.toLatLng(easting, northing, latOut, latIndex, lngOut, lngIndex);
+            return;
+        }
+        latOut[latIndex] = latitude;
+        lngOut[lngIndex] = longitude;
+    }
+
+    /**
+     * Return the index of the grid point at (u, v) rounded down, or -1 if the
+     * 3x3 grid points starting there are not all within the grid. u and v are
+     * in units of granularity from the grid origin.
+     */
+    private int index(double u, double v) {
+        if (!(u >= 0 && v >= 0 && u < columns - 2 && v < rows - 2)) {
+            return -1;
+        }
+        return (int) v * columns + (int) u;
+    }
+
+    /**
+     * Interpolate in the 3x3 grid points starting at index i. Unlike the
+     * built-in grid, the coefficients are not precomputed, to keep large
+     * grids off the heap.
+     */
+    private double interpolate(DoubleBuffer grid, int i, double u, double v) {
+        if (i < 0) {
+            return Double.NaN;
+        }
+        double x = u - (int) u;
+        double y = v - (int) v;
+        return UTM33ToLatLng.interpolate(
+                UTM33ToLatLng.interpolate(grid.get(i), grid.get(i + 1), grid.get(i + 2), x),
+                UTM33ToLatLng.interpolate(grid.get(i + columns), grid.get(i + columns + 1), grid.get(i + columns + 2), x),
+                UTM33ToLatLng.interpolate(grid.get(i + 2 * columns), grid.get(i + 2 * columns + 1), grid.get(i + 2 * columns + 2), x),
+                y);
+    }
+}
@@ -0,0 +1,266 @@
+package org.pvv.larschri.geo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Class for converting longitude/latitude to "UTM33" coordinates from
+ * Kartverket. This is the inverse of {@link UTM33ToLatLng}, using the same
+ * grid, so that converting back and forth gives the original coordinates.
+ */
+public class LatLngToUTM33 {
+    /**
+     * Type for converted values.
+     */
+    public static class UTM33 {
+        public final double easting;
+        public final double northing;
+        private UTM33(double easting, double northing) {
+            this.easting = easting;
+            this.northing = northing;
+        }
+    }
+
+    /**
+     * The conversion function. Points that {@link UTM33ToLatLng} does not
+     * convert to from within its grid are converted with the analytic
+     * transverse Mercator projection, like it does outside the grid.
+     * <p>
+     * This is several times slower than {@link UTM33ToLatLng#convert(double, double)}.
+     * The polynomials of the grid cells have no closed form inverse, so each
+     * point takes a seed from a coarse table and at least two Newton
+     * iterations, which each evaluate both polynomials and their partial
+     * derivatives and solve a 2x2 system.
+     */
+    public static UTM33 convert(double latitude, double longitude) {
+        if (UTM33ToLatLng.METRICS) {
+            ConversionMetrics.count(1);
+        }
+        Solver solver = new Solver();
+        solver.convert(latitude, longitude);
+        return new UTM33(solver.easting, solver.northing);
+    }
+
+    /**
+     * Batch version of {@link #convert(double, double)}. Converts the points
+     * at offset to offset + length - 1 in latitude and longitude, and stores
+     * the results at the same positions in eastingOut and northingOut.
+     * Nothing is allocated per point.
+     */
+    public static void convert(double[] latitude, double[] longitude,
+            double[] eastingOut, double[] northingOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, latitude.length, longitude.length, eastingOut.length, northingOut.length);
+        if (UTM33ToLatLng.METRICS) {
+            long start = ConversionMetrics.startBatch(length);
+            ConversionEvent event = ConversionMetrics.beginEvent();
+            convertRange(latitude, longitude, eastingOut, northingOut, offset, length);
+            ConversionMetrics.endBatch(event, start, length, "inverse");
+            return;
+        }
+        convertRange(latitude, longitude, eastingOut, northingOut, offset, length);
+    }
+
+    private static void convertRange(double[] latitude, double[] longitude,
+            double[] eastingOut, double[] northingOut, int offset, int length) {
+        Solver solver = new Solver();
+        for (int k = offset; k < offset + length; k++) {
+            solver.convert(latitude[k], longitude[k]);
+            eastingOut[k] = solver.easting;
+            northingOut[k] = solver.northing;
+        }
+    }
+
+    /**
+     * Maximum number of Newton iterations, and the step in meters where the
+     * iteration is considered converged. The error after such a step is far
+     * below a micrometer, since Newton's method converges quadratically.
+     */
+    static final int MAX_ITERATIONS = 8;
+    private static final double TOLERANCE = 1e-3;
+
+    /**
+     * Scalar core of the conversion, which holds the easting and northing of
+     * the last point converted, so that single points need no arrays and a
+     * batch uses one solver for all its points.
+     */
+    static final class Solver {
+        double easting;
+        double northing;
+
+        /**
+         * Convert one point, starting from an approximation from the
+         * inverse table.
+         */
+        void convert(double latitude, double longitude) {
+            double row = (latitude - MIN_LATITUDE) / STEP_LATITUDE;
+            double column = (longitude - MIN_LONGITUDE) / STEP_LONGITUDE;
+            int i = (int) row * COLUMNS + (int) column;
+            if (row >= 0 && column >= 0 && row < ROWS - 1 && column < COLUMNS - 1) {
+                double e = bilinear(Table.EASTINGS, i, column - (int) column, row - (int) row);
+                double n = bilinear(Table.NORTHINGS, i, column - (int) column, row - (int) row);
+                if (solve(latitude, longitude, e, n, MAX_ITERATIONS)) {
+                    return;
+                }
+            }
+            double[] utm = new double[2];
+            TransverseMercator.toUTM33(latitude, longitude, utm, 0, utm, 1);
+            easting = utm[0];
+            northing = utm[1];
+        }
+
+        /**
+         * Solve UTM33ToLatLng.convert(easting, northing) = (latitude, longitude)
+         * with Newton's method on the polynomial of the grid cell, starting
+         * from the given easting and northing. Keep the result in this
+         * solver, and return whether it converged within a cell of the grid.
+         * While outside the grid, the polynomial of the nearest cell is used,
+         * so that the iteration can find its way back.
+         */
+        boolean solve(double latitude, double longitude, double easting, double northing, int iterations) {
+            double[] lat = UTM33ToLatLng.Tables.LATITUDE_COEFFICIENTS;
+            double[] lng = UTM33ToLatLng.Tables.LONGITUDE_COEFFICIENTS;
+            int cell = -1, e = 0, n = 0;
+            double x = 0, y = 0;
+            boolean inside = false, converged = false;
+            // The seeds are close enough that two iterations almost always
+            // converge, so do not test for convergence before that
+            for (int iteration = 0; iteration < iterations && (iteration < 2 || !converged); iteration++) {
+                if (cell >= 0 && x >= 0 && x < 1 && y >= 0 && y < 1) {
+                    // Within the cell, which may have been found from outside
+                    inside = true;
+                } else {
+                    // Look up the cell at the start and when leaving the cell
+                    if (cell >= 0) {
+                        easting = e + x * UTM33ToLatLng.GRANULARITY;
+                        northing = n + y * UTM33ToLatLng.GRANULARITY;
+                    }
+                    e = UTM33ToLatLng.floor(easting);
+                    n = UTM33ToLatLng.floor(northing);
+                    cell = UTM33ToLatLng.index(e, n);
+                    inside = UTM33ToLatLng.covered(cell);
+                    if (!inside) {
+                        cell = nearestCell(easting, northing, e, n);
+                    }
+                    e = UTM33ToLatLng.easting(cell);
+                    n = UTM33ToLatLng.northing(cell);
+                    x = (easting - e) * (1.0 / UTM33ToLatLng.GRANULARITY);
+                    y = (northing - n) * (1.0 / UTM33ToLatLng.GRANULARITY);
+                }
+                int c = cell * 9;
+                // Latitude and its partial derivatives with respect to x and y
+                double p2 = Math.fma(Math.fma(lat[c], x, lat[c + 1]), x, lat[c + 2]);
+                double p1 = Math.fma(Math.fma(lat[c + 3], x, lat[c + 4]), x, lat[c + 5]);
+                double p0 = Math.fma(Math.fma(lat[c + 6], x, lat[c + 7]), x, lat[c + 8]);
+                double latError = Math.fma(Math.fma(p2, y, p1), y, p0) - latitude;
+                double latX = Math.fma(Math.fma(2 * lat[c], x, lat[c + 1]), y * y, Math.fma(
+                        Math.fma(2 * lat[c + 3], x, lat[c + 4]), y, Math.fma(2 * lat[c + 6], x, lat[c + 7])));
+                double latY = Math.fma(2 * p2, y, p1);
+                // Same for longitude
+                p2 = Math.fma(Math.fma(lng[c], x, lng[c + 1]), x, lng[c + 2]);
+                p1 = Math.fma(Math.fma(lng[c + 3], x, lng[c + 4]), x, lng[c + 5]);
+                p0 = Math.fma(Math.fma(lng[c + 6], x, lng[c + 7]), x, lng[c + 8]);
+                double lngError = Math.fma(Math.fma(p2, y, p1), y, p0) - longitude;
+                double lngX = Math.fma(Math.fma(2 * lng[c], x, lng[c + 1]), y * y, Math.fma(
+                        Math.fma(2 * lng[c + 3], x, lng[c + 4]), y, Math.fma(2 * lng[c + 6], x, lng[c + 7])));
+                double lngY = Math.fma(2 * p2, y, p1);
+                double inverse = 1 / (latX * lngY - latY * lngX);
+                double stepX = (lngY * latError - latY * lngError) * inverse;
+                double stepY = (latX * lngError - lngX * latError) * inverse;
+                x -= stepX;
+                y -= stepY;
+                converged = inside && Math.abs(stepX) < TOLERANCE / UTM33ToLatLng.GRANULARITY
+                        && Math.abs(stepY) < TOLERANCE / UTM33ToLatLng.GRANULARITY;
+            }
+            this.easting = e + x * UTM33ToLatLng.GRANULARITY;
+            this.northing = n + y * UTM33ToLatLng.GRANULARITY;
+            return converged;
+        }
+    }
+
+    /**
+     * Return the cell with a polynomial that is closest to the point at
+     * easting, northing, which is in the cell at e, n without a polynomial.
+     */
+    private static int nearestCell(double easting, double northing, int e, int n) {
+        int column = Math.min(Math.max((e - UTM33ToLatLng.MIN_EASTING) / UTM33ToLatLng.GRANULARITY, 0),
+                UTM33ToLatLng.COLUMNS - 1);
+        int row = Math.min(Math.max((n - UTM33ToLatLng.MIN_NORTHING) / UTM33ToLatLng.GRANULARITY, 0),
+                UTM33ToLatLng.ROWS - 1);
+        int nearest = NEAREST_CELLS[row * UTM33ToLatLng.COLUMNS + column];
+        double distance = Double.POSITIVE_INFINITY;
+        // Prefer a neighbour, by the distance from the point to the cell
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, UTM33ToLatLng.ROWS - 1); r++) {
+            for (int c = Math.max(column - 1, 0); c <= Math.min(column + 1, UTM33ToLatLng.COLUMNS - 1); c++) {
+                int j = r * UTM33ToLatLng.COLUMNS + c;
+                double x = (easting - UTM33ToLatLng.easting(j)) / UTM33ToLatLng.GRANULARITY;
+                double y = (northing - UTM33ToLatLng.northing(j)) / UTM33ToLatLng.GRANULARITY;
+                double dx = Math.max(Math.max(-x, x - 1), 0), dy = Math.max(Math.max(-y, y - 1), 0);
+                if (NEAREST_CELLS[j] == j && dx * dx + dy * dy < distance) {
+                    distance = dx * dx + dy * dy;
+                    nearest = j;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Bilinear interpolation between the table values at index i and its
+     * neighbours. x and y are between 0 and 1.
+     */
+    private static double bilinear(double[] table, int i, double x, double y) {
+        double bottom = table[i] + (table[i + 1] - table[i]) * x;
+        double top = table[i + COLUMNS] + (table[i + COLUMNS + 1] - table[i + COLUMNS]) * x;
+        return bottom + (top - bottom) * y;
+    }
+
+    /**
+     * The inverse table, a coarse latitude/longitude grid with the
+     * easting/northing of each point. Outside the grid of
+     * {@link UTM33ToLatLng}, the values are extrapolated from the nearest
+     * cell.
+     */
+    static final double MIN_LATITUDE = 57;
+    static final double MIN_LONGITUDE = 4;
+    static final double STEP_LATITUDE = 0.25;
+    static final double STEP_LONGITUDE = 0.5;
+    static final int ROWS = 61;
+    static final int COLUMNS = 63;
+
+    /**
+     * Lazy holder for the inverse table. Computing it takes many Newton
+     * iterations, so it is computed at build time by InverseTableGenerator
+     * into the resource utm33-inverse.table, as little-endian doubles with
+     * all the eastings and then all the northings, and read in one go.
+     */
+    private static final class Table {
+        static final double[] EASTINGS = new double[ROWS * COLUMNS];
+        static final double[] NORTHINGS = new double[ROWS * COLUMNS];
+
+        static {
+            try (InputStream in = LatLngToUTM33.class.getResourceAsStream("utm33-inverse.table")) {
+                if (in == null) {
+                    throw new IllegalStateException("Missing resource utm33-inverse.table");
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(in.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+                if (buffer.remaining() != 16 * ROWS * COLUMNS) {
+                    throw new IllegalStateException("Resource utm33-inverse.table does not match LatLngToUTM33");
+                }
+                buffer.asDoubleBuffer().get(EASTINGS).get(NORTHINGS);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * The nearest cell with a polynomial, for each grid index of
+     * {@link UTM33ToLatLng}. Cells with a polynomial map to themselves, and
+     * ties go to the lowest index. Computed at build time, see
+     * {@link BuiltInGrid}.
+     */
+    private static final char[] NEAREST_CELLS = BuiltInGrid.NEAREST_CELLS.toCharArray();
+}
@@ -0,0 +1,138 @@
+package org.pvv.larschri.geo;
+
+/**
+ * Converter for spatially coherent points, like GPS tracks and road
+ * polylines, where consecutive points are mostly in the same grid cell. It
+ * remembers the current cell and its coefficients, and only looks up a cell
+ * when a point is outside it. Results are the same as
+ * {@link UTM33ToLatLng#convert(double, double)}.
+ * <p>
+ * Not thread-safe, use one per thread.
+ */
+public class TrackConverter implements BatchConverter {
+    /**
+     * Easting and northing of the current cell, NaN before the first.
+     */
+    private double cellEasting = Double.NaN;
+    private double cellNorthing = Double.NaN;
+
+    /**
+     * Coefficients of the current cell, nine for latitude and then nine for
+     * longitude, see {@link UTM33ToLatLng#evaluate(double[], int, double, double)}.
+     */
+    private final double[] coefficients = new double[18];
+
+    /**
+     * Same as {@link UTM33ToLatLng#convert(double, double)}.
+     */
+    public UTM33ToLatLng.LatLng convert(double easting, double northing) {
+        if (UTM33ToLatLng.METRICS) {
+            ConversionMetrics.point(easting, northing);
+        }
+        double x = (easting - cellEasting) * (1.0 / UTM33ToLatLng.GRANULARITY);
+        double y = (northing - cellNorthing) * (1.0 / UTM33ToLatLng.GRANULARITY);
+        if (!(x >= 0 && x < 1 && y >= 0 && y < 1)) {
+            if (!moveTo(easting, northing)) {
+                double[] latLng = new double[2];
+                TransverseMercator.toLatLng(easting, northing, latLng, 0, latLng, 1);
+                return new UTM33ToLatLng.LatLng(latLng[0], latLng[1]);
+            }
+            x = (easting - cellEasting) * (1.0 / UTM33ToLatLng.GRANULARITY);
+            y = (northing - cellNorthing) * (1.0 / UTM33ToLatLng.GRANULARITY);
+        }
+        return new UTM33ToLatLng.LatLng(
+                UTM33ToLatLng.evaluate(coefficients, 0, x, y),
+                UTM33ToLatLng.evaluate(coefficients, 1, x, y));
+    }
+
+    /**
+     * Same as {@link UTM33ToLatLng#convert(double[], double[], double[], double[], int, int)}.
+     */
+    @Override
+    public void convert(double[] easting, double[] northing,
+            double[] latOut, double[] lngOut, int offset, int length) {
+        UTM33ToLatLng.checkRange(offset, length, easting.length, northing.length, latOut.length, lngOut.length);
+        if (UTM33ToLatLng.METRICS) {
+            long start = ConversionMetrics.startBatch(easting, northing, offset, length);
+            ConversionEvent event = ConversionMetrics.beginEvent();
+            convertRange(easting, northing, latOut, lngOut, offset, length);
+            ConversionMetrics.endBatch(event, start, length, "track");
+            return;
+        }
+        convertRange(easting, northing, latOut, lngOut, offset, length);
+    }
+
+    private void convertRange(double[] easting, double[] northing,
+            double[] latOut, double[] lngOut, int offset, int length) {
+        for (int k = offset; k < offset + length; k++) {
+            double x = (easting[k] - cellEasting) * (1.0 / UTM33ToLatLng.GRANULARITY);
+            double y = (northing[k] - cellNorthing) * (1.0 / UTM33ToLatLng.GRANULARITY);
+            if (!(x >= 0 && x < 1 && y >= 0 && y < 1)) {
+                if (!moveTo(easting[k], northing[k])) {
+                    TransverseMercator.toLatLng(easting[k], northing[k], latOut, k, lngOut, k);
+                    continue;
+                }
+                x = (easting[k] - cellEasting) * (1.0 / UTM33ToLatLng.GRANULARITY);
+                y = (northing[k] - cellNorthing) * (1.0 / UTM33ToLatLng.GRANULARITY);
+            }
+            latOut[k] = UTM33ToLatLng.evaluate(coefficients, 0, x, y);
+            lngOut[k] = UTM33ToLatLng.evaluate(coefficients, 1, x, y);
+        }
+    }
+
+    /**
+     * Convert a polyline or polygon ring in place. The points are easting,
+     * northing pairs in coordinates, starting at offset, and are replaced by
+     * latitude, longitude pairs. Nothing is allocated per point.
+     */
+    public void convertLine(double[] coordinates, int offset, int points) {
+        UTM33ToLatLng.checkRange(offset, 2 * points, coordinates.length);
+        if (UTM33ToLatLng.METRICS) {
+            long start = ConversionMetrics.startLine(coordinates, offset, points);
+            ConversionEvent event = ConversionMetrics.beginEvent();
+            convertLineRange(coordinates, offset, points);
+            ConversionMetrics.endBatch(event, start, points, "line");
+            return;
+        }
+        convertLineRange(coordinates, offset, points);
+    }
+
+    private void convertLineRange(double[] coordinates, int offset, int points) {
+        for (int k = offset; k < offset + 2 * points; k += 2) {
+            double easting = coordinates[k];
+            double northing = coordinates[k + 1];
+            double x = (easting - cellEasting) * (1.0 / UTM33ToLatLng.GRANULARITY);
+            double y = (northing - cellNorthing) * (1.0 / UTM33ToLatLng.GRANULARITY);
+            if (!(x >= 0 && x < 1 && y >= 0 && y < 1)) {
+                if (!moveTo(easting, northing)) {
+                    TransverseMercator.toLatLng(easting, northing, coordinates, k, coordinates, k + 1);
+                    continue;
+                }
+                x = (easting - cellEasting) * (1.0 / UTM33ToLatLng.GRANULARITY);
+                y = (northing - cellNorthing) * (1.0 / UTM33ToLatLng.GRANULARITY);
+            }
+            coordinates[k] = UTM33ToLatLng.evaluate(coefficients, 0, x, y);
+            coordinates[k + 1] = UTM33ToLatLng.evaluate(coefficients, 1, x, y);
+        }
+    }
+
+    /**
+     * Make the cell of the point at easting, northing the current cell, and
+     * return whether it is within the grid. Points outside are converted
+     * with the analytic projection by the caller, and leave the current cell
+     * as it was.
+     */
+    private boolean moveTo(double easting, double northing) {
+        int e = UTM33ToLatLng.floor(easting);
+        int n = UTM33ToLatLng.floor(northing);
+        int i = UTM33ToLatLng.index(e, n);
+        if (!UTM33ToLatLng.covered(i)) {
+            return false;
+        }
+        System.arraycopy(UTM33ToLatLng.Tables.LATITUDE_COEFFICIENTS, i * 9, coefficients, 0, 9);
+        System.arraycopy(UTM33ToLatLng.Tables.LONGITUDE_COEFFICIENTS, i * 9, coefficients, 9, 9);
+        cellEasting = e;
+        cellNorthing = n;
+        return true;
+    }
+}
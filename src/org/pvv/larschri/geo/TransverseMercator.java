@@ -0,0 +1,174 @@
+package org.pvv.larschri.geo;
+
+/**
+ * Analytic transverse Mercator projection for UTM zone 33, extended to all
+ * longitudes like the "UTM33" coordinates from Kartverket, on the GRS80
+ * ellipsoid of EUREF89. Uses the Kruger series in n to sixth order, as given
+ * by Karney (2011), "Transverse Mercator with an accuracy of a few
+ * nanometers", which is far below the accuracy of the grid within a few
+ * thousand kilometers of the central meridian. Used for points outside the
+ * grid of {@link UTM33ToLatLng}.
+ */
+final class TransverseMercator {
+    private TransverseMercator() {
+    }
+
+    private static final double A = 6378137;
+    private static final double F = 1 / 298.257222101;
+    private static final double K0 = 0.9996;
+    private static final double FALSE_EASTING = 500000;
+    private static final double CENTRAL_MERIDIAN = Math.toRadians(15);
+
+    private static final double N = F / (2 - F);
+
+    /**
+     * Domain of {@link #toLatLng}, in xi and eta, the northing and the
+     * distance from the central meridian divided by the scaled rectifying
+     * radius. Beyond the pole, |xi| > pi / 2, the projection is not defined,
+     * and beyond |eta| = 0.5, about 3180 km from the central meridian or 20
+     * degrees of longitude at the equator, the series loses its accuracy.
+     */
+    private static final double MAX_XI = Math.PI / 2;
+    private static final double MAX_ETA = 0.5;
+
+    /**
+     * Eccentricity, and the rectifying radius multiplied by the scale.
+     */
+    private static final double E = 2 * Math.sqrt(N) / (1 + N);
+    private static final double K0_RADIUS = K0 * A / (1 + N)
+            * (1 + N * N / 4 + Math.pow(N, 4) / 64 + Math.pow(N, 6) / 256);
+
+    /**
+     * Series coefficients, from conformal latitude to rectifying latitude
+     * (alpha), the inverse (beta), and from conformal to geodetic latitude
+     * (delta). Index j is for the term with 2j times the angle.
+     */
+    private static final double[] ALPHA = series(
+            1.0 / 2, -2.0 / 3, 5.0 / 16, 41.0 / 180, -127.0 / 288, 7891.0 / 37800,
+            13.0 / 48, -3.0 / 5, 557.0 / 1440, 281.0 / 630, -1983433.0 / 1935360,
+            61.0 / 240, -103.0 / 140, 15061.0 / 26880, 167603.0 / 181440,
+            49561.0 / 161280, -179.0 / 168, 6601661.0 / 7257600,
+            34729.0 / 80640, -3418889.0 / 1995840,
+            212378941.0 / 319334400);
+    private static final double[] BETA = series(
+            1.0 / 2, -2.0 / 3, 37.0 / 96, -1.0 / 360, -81.0 / 512, 96199.0 / 604800,
+            1.0 / 48, 1.0 / 15, -437.0 / 1440, 46.0 / 105, -1118711.0 / 3870720,
+            17.0 / 480, -37.0 / 840, -209.0 / 4480, 5569.0 / 90720,
+            4397.0 / 161280, -11.0 / 504, -830251.0 / 7257600,
+            4583.0 / 161280, -108847.0 / 3991680,
+            20648693.0 / 638668800);
+    private static final double[] DELTA = series(
+            2, -2.0 / 3, -2, 116.0 / 45, 26.0 / 45, -2854.0 / 675,
+            7.0 / 3, -8.0 / 5, -227.0 / 45, 2704.0 / 315, 2323.0 / 945,
+            56.0 / 15, -136.0 / 35, -1262.0 / 105, 73814.0 / 2835,
+            4279.0 / 630, -332.0 / 35, -399572.0 / 14175,
+            4174.0 / 315, -144838.0 / 6237,
+            601676.0 / 22275);
+
+    /**
+     * Evaluate the polynomials in n for the six coefficients of a series.
+     * The terms are given from the lowest power of n, which for coefficient
+     * j is n^j.
+     */
+    private static double[] series(double... terms) {
+        double[] coefficients = new double[7];
+        for (int j = 1, t = 0; j <= 6; j++) {
+            for (int power = j; power <= 6; power++) {
+                coefficients[j] += terms[t++] * Math.pow(N, power);
+            }
+        }
+        return coefficients;
+    }
+
+    /**
+     * Convert easting, northing to latitude, longitude in degrees, and
+     * store them at latOut[latIndex] and lngOut[lngIndex], which may be in
+     * the same array. Points outside the domain, see {@link #MAX_XI}, and
+     * points that are not finite give NaN.
+     */
+    static void toLatLng(double easting, double northing,
+            double[] latOut, int latIndex, double[] lngOut, int lngIndex) {
+        double xi = northing / K0_RADIUS;
+        double eta = (easting - FALSE_EASTING) / K0_RADIUS;
+        if (!(Math.abs(xi) <= MAX_XI && Math.abs(eta) <= MAX_ETA)) {
+            latOut[latIndex] = Double.NaN;
+            lngOut[lngIndex] = Double.NaN;
+            return;
+        }
+        // xi' + i eta' = zeta - sum beta_j sin(2 j zeta), with zeta = xi + i eta
+        double sin2 = Math.sin(2 * xi), cos2 = Math.cos(2 * xi);
+        double exp2 = Math.exp(2 * eta);
+        double sinh2 = (exp2 - 1 / exp2) / 2, cosh2 = (exp2 + 1 / exp2) / 2;
+        double sin = sin2, cos = cos2, sinh = sinh2, cosh = cosh2;
+        double xiPrime = xi, etaPrime = eta;
+        for (int j = 1; j <= 6; j++) {
+            xiPrime -= BETA[j] * sin * cosh;
+            etaPrime -= BETA[j] * cos * sinh;
+            // Angles 2 (j + 1) xi and 2 (j + 1) eta by the addition formulas
+            double s = sin * cos2 + cos * sin2;
+            cos = cos * cos2 - sin * sin2;
+            sin = s;
+            double sh = sinh * cosh2 + cosh * sinh2;
+            cosh = cosh * cosh2 + sinh * sinh2;
+            sinh = sh;
+        }
+        double expEta = Math.exp(etaPrime);
+        double sinhEta = (expEta - 1 / expEta) / 2, coshEta = (expEta + 1 / expEta) / 2;
+        double sinXi = Math.sin(xiPrime), cosXi = Math.cos(xiPrime);
+        double root = Math.sqrt(sinhEta * sinhEta + cosXi * cosXi);
+        // Conformal latitude chi, then the geodetic latitude. Sine and cosine
+        // of 2 chi follow from those of chi, which are sinXi / coshEta and
+        // root / coshEta.
+        double chi = Math.atan2(sinXi, root);
+        double sinChi2 = 2 * sinXi * root / (coshEta * coshEta);
+        double cosChi2 = (root * root - sinXi * sinXi) / (coshEta * coshEta);
+        double latitude = chi;
+        double s = sinChi2, c = cosChi2;
+        for (int j = 1; j <= 6; j++) {
+            latitude += DELTA[j] * s;
+            double next = s * cosChi2 + c * sinChi2;
+            c = c * cosChi2 - s * sinChi2;
+            s = next;
+        }
+        latOut[latIndex] = Math.toDegrees(latitude);
+        lngOut[lngIndex] = Math.toDegrees(CENTRAL_MERIDIAN + Math.atan2(sinhEta, cosXi));
+    }
+
+    /**
+     * Convert latitude, longitude in degrees to easting, northing, and store
+     * them at the given indices.
+     */
+    static void toUTM33(double latitude, double longitude,
+            double[] eastingOut, int eastingIndex, double[] northingOut, int northingIndex) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude) - CENTRAL_MERIDIAN;
+        double sinPhi = Math.sin(phi);
+        // Tangent of the conformal latitude
+        double expPsi = Math.exp(atanh(sinPhi) - E * atanh(E * sinPhi));
+        double tau = (expPsi - 1 / expPsi) / 2;
+        double xiPrime = Math.atan2(tau, Math.cos(lambda));
+        double etaPrime = atanh(Math.sin(lambda) / Math.sqrt(1 + tau * tau));
+        // xi + i eta = zeta' + sum alpha_j sin(2 j zeta'), with zeta' = xi' + i eta'
+        double sin2 = Math.sin(2 * xiPrime), cos2 = Math.cos(2 * xiPrime);
+        double exp2 = Math.exp(2 * etaPrime);
+        double sinh2 = (exp2 - 1 / exp2) / 2, cosh2 = (exp2 + 1 / exp2) / 2;
+        double sin = sin2, cos = cos2, sinh = sinh2, cosh = cosh2;
+        double xi = xiPrime, eta = etaPrime;
+        for (int j = 1; j <= 6; j++) {
+            xi += ALPHA[j] * sin * cosh;
+            eta += ALPHA[j] * cos * sinh;
+            double s = sin * cos2 + cos * sin2;
+            cos = cos * cos2 - sin * sin2;
+            sin = s;
+            double sh = sinh * cosh2 + cosh * sinh2;
+            cosh = cosh * cosh2 + sinh * sinh2;
+            sinh = sh;
+        }
+        eastingOut[eastingIndex] = FALSE_EASTING + K0_RADIUS * eta;
+        northingOut[northingIndex] = K0_RADIUS * xi;
+    }
+
+    private static double atanh(double x) {
+        return 0.5 * Math.log((1 + x) / (1 - x));
+    }
+}
@@ -0,0 +1,156 @@
+package org.pvv.larschri.geo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The converters must give exactly the same results as
+ * {@link UTM33ToLatLng#convert(double[], double[], double[], double[], int, int)},
+ * for random points and for tracks, within the grid and outside it.
+ */
+class BatchConverterTest {
+    static final int SIZE = 100000;
+
+    static double[][] random;
+    static double[][] track;
+
+    @BeforeAll
+    static void points() {
+        Random generator = new Random(1);
+        random = new double[2][SIZE];
+        track = new double[2][SIZE];
+        double easting = 100000;
+        double northing = 6500000;
+        for (int k = 0; k < SIZE; k++) {
+            random[0][k] = -200000 + generator.nextDouble() * 1600000;
+            random[1][k] = 6200000 + generator.nextDouble() * 2000000;
+            // A walk with steps of up to 500 meters
+            easting += 100 + generator.nextDouble() * 400;
+            northing += generator.nextDouble() * 500 - 100;
+            track[0][k] = easting;
+            track[1][k] = northing;
+        }
+    }
+
+    private static double[][] expected(double[][] points) {
+        double[][] latLng = new double[2][SIZE];
+        UTM33ToLatLng.convert(points[0], points[1], latLng[0], latLng[1], 0, SIZE);
+        return latLng;
+    }
+
+    private static void assertSame(double[][] points, BatchConverter converter) {
+        double[][] latLng = new double[2][SIZE];
+        converter.convert(points[0], points[1], latLng[0], latLng[1], 0, SIZE);
+        double[][] expected = expected(points);
+        assertArrayEquals(expected[0], latLng[0]);
+        assertArrayEquals(expected[1], latLng[1]);
+    }
+
+    @Test
+    void track() {
+        assertSame(random, new TrackConverter());
+        assertSame(track, new TrackConverter());
+    }
+
+    @Test
+    void trackSingle() {
+        TrackConverter converter = new TrackConverter();
+        double[][] expected = expected(track);
+        for (int k = 0; k < SIZE; k++) {
+            UTM33ToLatLng.LatLng latLng = converter.convert(track[0][k], track[1][k]);
+            assertEquals(expected[0][k], latLng.latitude);
+            assertEquals(expected[1][k], latLng.longitude);
+        }
+    }
+
+    @Test
+    void trackLine() {
+        for (double[][] points : new double[][][] {random, track}) {
+            double[] coordinates = new double[2 * SIZE];
+            for (int k = 0; k < SIZE; k++) {
+                coordinates[2 * k] = points[0][k];
+                coordinates[2 * k + 1] = points[1][k];
+            }
+            new TrackConverter().convertLine(coordinates, 0, SIZE);
+            double[][] expected = expected(points);
+            for (int k = 0; k < SIZE; k++) {
+                assertArrayEquals(new double[] {expected[0][k], expected[1][k]},
+                        new double[] {coordinates[2 * k], coordinates[2 * k + 1]});
+            }
+        }
+    }
+
+    @Test
+    void vectorized() {
+        BatchConverter converter = ExperimentalConverters.vectorized();
+        assertEquals("org.pvv.larschri.geo.VectorBatchConverter", converter.getClass().getName());
+        assertSame(random, converter);
+        assertSame(track, converter);
+    }
+
+    @Test
+    void parallel() {
+        assertSame(random, (e, n, lat, lng, offset, length) -> UTM33ToLatLng.convertParallel(e, n, lat, lng));
+        assertSame(track, (e, n, lat, lng, offset, length) -> UTM33ToLatLng.convertParallel(e, n, lat, lng));
+    }
+
+    @Test
+    void parallelAction() {
+        double[][] latLng = new double[2][SIZE];
+        double[][] expected = expected(random);
+        AtomicIntegerArray seen = new AtomicIntegerArray(SIZE);
+        UTM33ToLatLng.convertParallel(random[0], random[1], latLng[0], latLng[1], i -> {
+            seen.incrementAndGet(i);
+            assertEquals(expected[0][i], latLng[0][i]);
+            assertEquals(expected[1][i], latLng[1][i]);
+        });
+        for (int k = 0; k < SIZE; k++) {
+            assertEquals(1, seen.get(k));
+        }
+    }
+
+    @Test
+    void columns() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16 * SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int k = 0; k < SIZE; k++) {
+            buffer.putDouble(random[0][k]).putDouble(random[1][k]);
+        }
+        UTM33ToLatLng.convert(Column.of(buffer, 0, 16), Column.of(buffer, 8, 16),
+                Column.of(buffer, 0, 16), Column.of(buffer, 8, 16), SIZE);
+        double[][] latLng = new double[2][SIZE];
+        for (int k = 0; k < SIZE; k++) {
+            latLng[0][k] = buffer.getDouble(16 * k);
+            latLng[1][k] = buffer.getDouble(16 * k + 8);
+        }
+        double[][] expected = expected(random);
+        assertArrayEquals(expected[0], latLng[0]);
+        assertArrayEquals(expected[1], latLng[1]);
+    }
+
+    @Test
+    void separateColumns() {
+        // Big-endian heap buffers, one per coordinate
+        ByteBuffer easting = ByteBuffer.allocate(8 * SIZE);
+        ByteBuffer northing = ByteBuffer.allocate(8 * SIZE);
+        for (int k = 0; k < SIZE; k++) {
+            easting.putDouble(track[0][k]);
+            northing.putDouble(track[1][k]);
+        }
+        ByteBuffer latitude = ByteBuffer.allocate(8 * SIZE);
+        ByteBuffer longitude = ByteBuffer.allocate(8 * SIZE);
+        UTM33ToLatLng.convert(Column.of(easting), Column.of(northing), Column.of(latitude), Column.of(longitude), SIZE);
+        double[][] expected = expected(track);
+        for (int k = 0; k < SIZE; k++) {
+            assertEquals(expected[0][k], latitude.getDouble(8 * k));
+            assertEquals(expected[1][k], longitude.getDouble(8 * k));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.pvv.larschri.geo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Each entry point must count its conversions and batches. Run by the
+ * testMetrics task, in a JVM with metrics enabled.
+ */
+class ConversionMetricsTest {
+    /**
+     * Two points in the grid and one outside it.
+     */
+    static final double[] EASTING = {146001.89, 146002.89, 5000000};
+    static final double[] NORTHING = {6851888.74, 6851888.74, 7000000};
+    static final int CELL = UTM33ToLatLng.index(UTM33ToLatLng.floor(146001.89), UTM33ToLatLng.floor(6851888.74));
+
+    final double[] latitude = new double[3];
+    final double[] longitude = new double[3];
+
+    @BeforeEach
+    void reset() {
+        assertTrue(ConversionMetrics.enabled());
+        ConversionMetrics.reset();
+    }
+
+    /**
+     * Check the counters after converting EASTING and NORTHING, in the
+     * given number of batches.
+     */
+    private static void assertCounted(int batches) {
+        ConversionMetrics.Snapshot snapshot = ConversionMetrics.snapshot();
+        assertEquals(3, snapshot.conversions);
+        assertEquals(1, snapshot.outsideGrid);
+        assertEquals(2, snapshot.cellHits[CELL]);
+        assertEquals(2, Arrays.stream(snapshot.cellHits).sum());
+        assertEquals(batches, snapshot.batches);
+        assertEquals(batches, Arrays.stream(snapshot.batchSizes).sum());
+        assertEquals(batches, Arrays.stream(snapshot.batchNanos).sum());
+    }
+
+    /**
+     * Check the counters after converting three points that are not counted
+     * by cell, in the given number of batches.
+     */
+    private static void assertCountedWithoutCells(int batches) {
+        ConversionMetrics.Snapshot snapshot = ConversionMetrics.snapshot();
+        assertEquals(3, snapshot.conversions);
+        assertEquals(0, snapshot.outsideGrid);
+        assertEquals(0, Arrays.stream(snapshot.cellHits).sum());
+        assertEquals(batches, snapshot.batches);
+    }
+
+    @Test
+    void single() {
+        for (int k = 0; k < 3; k++) {
+            UTM33ToLatLng.convert(EASTING[k], NORTHING[k]);
+        }
+        assertCounted(0);
+    }
+
+    @Test
+    void batch() {
+        UTM33ToLatLng.convert(EASTING, NORTHING, latitude, longitude, 0, 3);
+        assertCounted(1);
+        assertEquals(1, ConversionMetrics.snapshot().batchSizes[2]);
+    }
+
+    @Test
+    void status() {
+        UTM33ToLatLng.convert(EASTING, NORTHING, latitude, longitude, new byte[3], 0, 3);
+        assertCounted(1);
+    }
+
+    @Test
+    void track() {
+        TrackConverter converter = new TrackConverter();
+        converter.convert(EASTING, NORTHING, latitude, longitude, 0, 3);
+        assertCounted(1);
+        ConversionMetrics.reset();
+        converter.convertLine(new double[] {EASTING[0], NORTHING[0], EASTING[1], NORTHING[1],
+            EASTING[2], NORTHING[2]}, 0, 3);
+        assertCounted(1);
+        ConversionMetrics.reset();
+        for (int k = 0; k < 3; k++) {
+            converter.convert(EASTING[k], NORTHING[k]);
+        }
+        assertCounted(0);
+    }
+
+    @Test
+    void columns() {
+        ByteBuffer buffer = ByteBuffer.allocate(48);
+        for (int k = 0; k < 3; k++) {
+            buffer.putDouble(EASTING[k]).putDouble(NORTHING[k]);
+        }
+        UTM33ToLatLng.convert(Column.of(buffer, 0, 16), Column.of(buffer, 8, 16),
+                Column.of(buffer, 0, 16), Column.of(buffer, 8, 16), 3);
+        assertCounted(1);
+    }
+
+    @Test
+    void fixedPoint() {
+        int[] easting = new int[3];
+        int[] northing = new int[3];
+        for (int k = 0; k < 3; k++) {
+            easting[k] = (int) Math.round(EASTING[k] * 100);
+            northing[k] = (int) Math.round(NORTHING[k] * 100);
+        }
+        FixedPoint.convertToMicroDegrees(easting, northing, 100, new int[3], new int[3], 0, 3);
+        assertCounted(1);
+    }
+
+    @Test
+    void vectorized() {
+        ExperimentalConverters.vectorized().convert(EASTING, NORTHING, latitude, longitude, 0, 3);
+        assertCounted(1);
+    }
+
+    @Test
+    void grid() {
+        Grid grid = Grid.builtIn();
+        grid.convert(EASTING, NORTHING, latitude, longitude, 0, 3);
+        assertCountedWithoutCells(1);
+        ConversionMetrics.reset();
+        for (int k = 0; k < 3; k++) {
+            grid.convert(EASTING[k], NORTHING[k]);
+        }
+        assertCountedWithoutCells(0);
+    }
+
+    @Test
+    void inverse() {
+        double[] latitude = {61.6, 61.7, 10};
+        double[] longitude = {8.3, 8.4, 15};
+        LatLngToUTM33.convert(latitude, longitude, this.latitude, this.longitude, 0, 3);
+        assertCountedWithoutCells(1);
+        ConversionMetrics.reset();
+        for (int k = 0; k < 3; k++) {
+            LatLngToUTM33.convert(latitude[k], longitude[k]);
+        }
+        assertCountedWithoutCells(0);
+    }
+}
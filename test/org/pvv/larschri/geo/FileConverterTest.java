@@ -0,0 +1,126 @@
+package org.pvv.larschri.geo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Files converted by {@link FileConverter} must have the same lines as
+ * converting each point by itself, also where lines cross chunks.
+ */
+class FileConverterTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * The converted line, with any further columns kept.
+     */
+    static String convert(double easting, double northing, String rest) {
+        UTM33ToLatLng.LatLng latLng = UTM33ToLatLng.convert(easting, northing);
+        return latLng.latitude + "," + latLng.longitude + rest;
+    }
+
+    private Path write(String name, String text) throws IOException {
+        return Files.write(directory.resolve(name), text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private String convertCsv(Path input) throws IOException {
+        Path output = directory.resolve("output.csv");
+        FileConverter.convert(input, output, FileConverter.Format.CSV, 4);
+        return new String(Files.readAllBytes(output), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void csvAcrossChunks() throws IOException {
+        // Lines of varying length over three chunks, so that chunks start
+        // anywhere in a line
+        Random random = new Random(1);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        while (input.length() < 2 * FileConverter.CHUNK_SIZE + 1000) {
+            double easting = Math.rint(random.nextDouble() * 1200000 * 100) / 100;
+            double northing = Math.rint((6400000 + random.nextDouble() * 1600000) * 100) / 100;
+            String rest = random.nextInt(3) == 0 ? ",point " + random.nextInt(1 << random.nextInt(30)) : "";
+            input.append(easting).append(',').append(northing).append(rest).append('\n');
+            expected.append(convert(easting, northing, rest)).append('\n');
+        }
+        assertEquals(expected.toString(), convertCsv(write("input.csv", input.toString())));
+    }
+
+    @Test
+    void csvLastLine() throws IOException {
+        assertEquals(convert(146001.89, 6851888.74, ",a b") + "\n" + convert(300000, 7000000, ""),
+                convertCsv(write("input.csv", "146001.89,6851888.74,a b\n300000,7000000")));
+        assertEquals("", convertCsv(write("empty.csv", "")));
+    }
+
+    @Test
+    void csvHeaderAndBlankLines() throws IOException {
+        assertEquals("latitude,longitude,name\n" + convert(146001.89, 6851888.74, ",a") + "\n\n \n"
+                + convert(300000, 7000000, "") + "\n",
+                convertCsv(write("input.csv", "easting,northing,name\n146001.89,6851888.74,a\n\n \n300000,7000000\n")));
+        assertEquals("latitude,longitude\n", convertCsv(write("header.csv", "x,y\n")));
+    }
+
+    @Test
+    void csvCrLf() throws IOException {
+        assertEquals("latitude,longitude\r\n" + convert(146001.89, 6851888.74, ",a b") + "\r\n\r\n"
+                + convert(300000, 7000000, "") + "\r\n" + convert(300000, 7000000, ",\r"),
+                convertCsv(write("input.csv", "x,y\r\n146001.89,6851888.74,a b\r\n\r\n300000,7000000\r\n"
+                        + "300000,7000000,\r")));
+    }
+
+    @Test
+    void csvInvalid() throws IOException {
+        Path input = write("input.csv", "146001.89,6851888.74\n146001.89;6851888.74\n");
+        assertThrows(IOException.class, () -> convertCsv(input));
+        // Only the first line may be a header
+        Path header = write("header.csv", "146001.89,6851888.74\neasting,northing\n");
+        assertThrows(IOException.class, () -> convertCsv(header));
+        assertThrows(IOException.class, () -> FileConverter.convert(input, input, FileConverter.Format.CSV, 1));
+        assertEquals("146001.89,6851888.74\n146001.89;6851888.74\n",
+                new String(Files.readAllBytes(input), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void binary() throws IOException {
+        Random random = new Random(1);
+        int points = 1000;
+        double[] easting = new double[points];
+        double[] northing = new double[points];
+        ByteBuffer input = ByteBuffer.allocate(16 * points).order(ByteOrder.LITTLE_ENDIAN);
+        for (int k = 0; k < points; k++) {
+            easting[k] = random.nextDouble() * 1200000;
+            northing[k] = 6400000 + random.nextDouble() * 1600000;
+            input.putDouble(easting[k]).putDouble(northing[k]);
+        }
+        Path in = Files.write(directory.resolve("input.bin"), input.array());
+        Path out = directory.resolve("output.bin");
+        FileConverter.convert(in, out, FileConverter.Format.BINARY, 2);
+        ByteBuffer output = ByteBuffer.wrap(Files.readAllBytes(out)).order(ByteOrder.LITTLE_ENDIAN);
+        double[] latitude = new double[points];
+        double[] longitude = new double[points];
+        UTM33ToLatLng.convert(easting, northing, latitude, longitude, 0, points);
+        double[][] actual = new double[2][points];
+        for (int k = 0; k < points; k++) {
+            actual[0][k] = output.getDouble();
+            actual[1][k] = output.getDouble();
+        }
+        assertArrayEquals(latitude, actual[0]);
+        assertArrayEquals(longitude, actual[1]);
+
+        Path odd = Files.write(directory.resolve("odd.bin"), new byte[17]);
+        assertThrows(IOException.class, () -> FileConverter.convert(odd, out, FileConverter.Format.BINARY, 2));
+    }
+}
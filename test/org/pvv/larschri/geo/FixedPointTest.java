@@ -0,0 +1,127 @@
+package org.pvv.larschri.geo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Fixed-point input must give the same doubles as parsing the decimal
+ * values, and compact output must be the documented rounding of the double
+ * results.
+ */
+class FixedPointTest {
+    static final int SIZE = 10000;
+
+    static int[] eastingCm, northingCm;
+    static double[] easting, northing;
+    static double[] latitude, longitude;
+
+    @BeforeAll
+    static void points() {
+        Random random = new Random(1);
+        eastingCm = new int[SIZE];
+        northingCm = new int[SIZE];
+        easting = new double[SIZE];
+        northing = new double[SIZE];
+        for (int k = 0; k < SIZE; k++) {
+            eastingCm[k] = random.nextInt(120000000);
+            northingCm[k] = 640000000 + random.nextInt(160000000);
+            easting[k] = Double.parseDouble(BigDecimal.valueOf(eastingCm[k], 2).toString());
+            northing[k] = Double.parseDouble(BigDecimal.valueOf(northingCm[k], 2).toString());
+        }
+        latitude = new double[SIZE];
+        longitude = new double[SIZE];
+        UTM33ToLatLng.convert(easting, northing, latitude, longitude, 0, SIZE);
+    }
+
+    private static long[] longs(int[] values) {
+        long[] longs = new long[values.length];
+        for (int k = 0; k < values.length; k++) {
+            longs[k] = values[k];
+        }
+        return longs;
+    }
+
+    @Test
+    void fixedPointInput() {
+        double[] lat = new double[SIZE];
+        double[] lng = new double[SIZE];
+        FixedPoint.convert(eastingCm, northingCm, 100, lat, lng, 0, SIZE);
+        assertArrayEquals(latitude, lat);
+        assertArrayEquals(longitude, lng);
+        FixedPoint.convert(longs(eastingCm), longs(northingCm), 100, lat, lng, 0, SIZE);
+        assertArrayEquals(latitude, lat);
+        assertArrayEquals(longitude, lng);
+        assertThrows(IllegalArgumentException.class,
+                () -> FixedPoint.convert(eastingCm, northingCm, 0, lat, lng, 0, SIZE));
+    }
+
+    @Test
+    void everyInputType() {
+        // Each output from double, int and long input
+        float[][] floats = new float[3][SIZE];
+        int[][] micro = new int[3][SIZE];
+        long[][] packed = new long[3][SIZE];
+        FixedPoint.convertToFloat(easting, northing, floats[0], floats[1], 0, SIZE);
+        FixedPoint.convertToFloat(longs(eastingCm), longs(northingCm), 100, floats[2], floats[1], 0, SIZE);
+        assertArrayEquals(floats[0], floats[2]);
+        FixedPoint.convertToMicroDegrees(easting, northing, micro[0], micro[1], 0, SIZE);
+        FixedPoint.convertToMicroDegrees(eastingCm, northingCm, 100, micro[2], micro[1], 0, SIZE);
+        assertArrayEquals(micro[0], micro[2]);
+        FixedPoint.convertToPacked(easting, northing, packed[0], 0, SIZE);
+        FixedPoint.convertToPacked(eastingCm, northingCm, 100, packed[1], 0, SIZE);
+        FixedPoint.convertToPacked(longs(eastingCm), longs(northingCm), 100, packed[2], 0, SIZE);
+        assertArrayEquals(packed[0], packed[1]);
+        assertArrayEquals(packed[0], packed[2]);
+        assertThrows(IllegalArgumentException.class,
+                () -> FixedPoint.convertToPacked(eastingCm, northingCm, Double.NaN, packed[1], 0, SIZE));
+    }
+
+    @Test
+    void floatOutput() {
+        float[] lat = new float[SIZE];
+        float[] lng = new float[SIZE];
+        FixedPoint.convertToFloat(eastingCm, northingCm, 100, lat, lng, 0, SIZE);
+        for (int k = 0; k < SIZE; k++) {
+            assertEquals((float) latitude[k], lat[k]);
+            assertEquals((float) longitude[k], lng[k]);
+        }
+        FixedPoint.convertToFloat(easting, northing, lat, lng, 0, SIZE);
+        assertEquals((float) latitude[SIZE - 1], lat[SIZE - 1]);
+    }
+
+    @Test
+    void microDegreeOutput() {
+        int[] lat = new int[SIZE];
+        int[] lng = new int[SIZE];
+        FixedPoint.convertToMicroDegrees(longs(eastingCm), longs(northingCm), 100, lat, lng, 0, SIZE);
+        for (int k = 0; k < SIZE; k++) {
+            assertEquals((int) Math.rint(latitude[k] * 1e6), lat[k]);
+            assertEquals((int) Math.rint(longitude[k] * 1e6), lng[k]);
+        }
+        assertEquals(-3, FixedPoint.microDegrees(-3e-6));
+        assertEquals(FixedPoint.INVALID, FixedPoint.microDegrees(Double.NaN));
+    }
+
+    @Test
+    void packedOutput() {
+        long[] packed = new long[SIZE];
+        FixedPoint.convertToPacked(easting, northing, packed, 0, SIZE);
+        for (int k = 0; k < SIZE; k++) {
+            assertEquals(FixedPoint.microDegrees(latitude[k]), FixedPoint.latitude(packed[k]));
+            assertEquals(FixedPoint.microDegrees(longitude[k]), FixedPoint.longitude(packed[k]));
+        }
+        long point = FixedPoint.pack(-61636432, -8312486);
+        assertEquals(-61636432, FixedPoint.latitude(point));
+        assertEquals(-8312486, FixedPoint.longitude(point));
+        point = FixedPoint.pack(FixedPoint.INVALID, 8312486);
+        assertEquals(FixedPoint.INVALID, FixedPoint.latitude(point));
+        assertEquals(8312486, FixedPoint.longitude(point));
+    }
+}
@@ -0,0 +1,172 @@
+package org.pvv.larschri.geo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Geometries must be converted like their vertices by a
+ * {@link TrackConverter}, and numbers in WKT must be read as
+ * {@link Double#parseDouble(String)} reads them, also where they are parsed
+ * directly.
+ */
+class GeometryConverterTest {
+    @Test
+    void wktNumbersParseLikeDouble() {
+        Random random = new Random(1);
+        GeometryConverter converter = new GeometryConverter();
+        TrackConverter track = new TrackConverter();
+        for (int k = 0; k < 100000; k++) {
+            String easting = number(random, 100000 + random.nextDouble() * 900000);
+            String northing = number(random, 6500000 + random.nextDouble() * 1000000);
+            String wkt = converter.convertWkt("POINT (" + easting + " " + northing + ")");
+            String[] lngLat = wkt.substring(wkt.indexOf('(') + 1, wkt.indexOf(')')).split(" ");
+            double[] expected = {Double.parseDouble(easting), Double.parseDouble(northing)};
+            track.convertLine(expected, 0, 1);
+            assertEquals(expected[1], Double.parseDouble(lngLat[0]), easting + " " + northing);
+            assertEquals(expected[0], Double.parseDouble(lngLat[1]), easting + " " + northing);
+        }
+    }
+
+    @Test
+    void wktAcrossBuffers() {
+        // A linestring much longer than the input buffer, so that numbers
+        // continue past its end
+        Random random = new Random(2);
+        int vertices = 5000;
+        double[] coordinates = new double[2 * vertices];
+        StringBuilder wkt = new StringBuilder("LINESTRING (");
+        for (int k = 0; k < vertices; k++) {
+            String easting = number(random, 100000 + random.nextDouble() * 900000);
+            String northing = number(random, 6500000 + random.nextDouble() * 1000000);
+            coordinates[2 * k] = Double.parseDouble(easting);
+            coordinates[2 * k + 1] = Double.parseDouble(northing);
+            wkt.append(k > 0 ? ", " : "").append(easting).append(' ').append(northing);
+        }
+        new TrackConverter().convertLine(coordinates, 0, vertices);
+        String converted = new GeometryConverter().convertWkt(wkt.append(')').toString());
+        String[] lngLat = converted.substring(converted.indexOf('(') + 1, converted.indexOf(')')).split(",? ");
+        assertEquals(2 * vertices, lngLat.length);
+        for (int k = 0; k < vertices; k++) {
+            assertEquals(coordinates[2 * k + 1], Double.parseDouble(lngLat[2 * k]));
+            assertEquals(coordinates[2 * k], Double.parseDouble(lngLat[2 * k + 1]));
+        }
+    }
+
+    @Test
+    void wktKeepsText() {
+        GeometryConverter converter = new GeometryConverter(6);
+        UTM33ToLatLng.LatLng a = UTM33ToLatLng.convert(146001.89, 6851888.74);
+        UTM33ToLatLng.LatLng b = UTM33ToLatLng.convert(300000, 7000000);
+        String expected = String.format(Locale.ROOT,
+                "SRID=4326;MULTIPOINT Z ((%.6f %.6f 12.5), (%.6f %.6f 3))",
+                a.longitude, a.latitude, b.longitude, b.latitude);
+        assertEquals(expected, converter.convertWkt(
+                "SRID=25833;MULTIPOINT Z ((146001.89 6851888.74 12.5), (300000 7000000 3))"));
+        assertEquals("srid=4326;POINT EMPTY", converter.convertWkt("srid=25833;POINT EMPTY"));
+        assertThrows(RuntimeException.class, () -> converter.convertWkt("POINT (1 2"));
+    }
+
+    @Test
+    void wkbRange() {
+        // Two points, of which only the second is converted
+        ByteBuffer buffer = ByteBuffer.allocate(42).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 1).putInt(1).putDouble(146001.89).putDouble(6851888.74);
+        buffer.put((byte) 1).putInt(1).putDouble(300000).putDouble(7000000);
+        byte[] wkb = buffer.array();
+        GeometryConverter converter = new GeometryConverter();
+        converter.convertWkb(wkb, 21, 21);
+        UTM33ToLatLng.LatLng latLng = UTM33ToLatLng.convert(300000, 7000000);
+        assertEquals(146001.89, buffer.getDouble(5));
+        assertEquals(latLng.longitude, buffer.getDouble(26));
+        assertEquals(latLng.latitude, buffer.getDouble(34));
+        // The first point does not fit in the range
+        assertThrows(IndexOutOfBoundsException.class, () -> converter.convertWkb(wkb, 0, 20));
+        assertThrows(IndexOutOfBoundsException.class, () -> converter.convertWkb(wkb, 21, 22));
+    }
+
+    @Test
+    void wkbNesting() {
+        // Geometry collections nested deeper than the stack would allow
+        int depth = 100000;
+        ByteBuffer buffer = ByteBuffer.allocate(9 * depth).order(ByteOrder.LITTLE_ENDIAN);
+        for (int k = 0; k < depth; k++) {
+            buffer.put((byte) 1).putInt(7).putInt(1);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new GeometryConverter().convertWkb(buffer.array()));
+        // Nesting up to the limit is fine
+        int allowed = GeometryConverter.MAX_DEPTH + 1;
+        ByteBuffer nested = ByteBuffer.allocate(9 * allowed).order(ByteOrder.LITTLE_ENDIAN);
+        for (int k = 0; k < allowed; k++) {
+            nested.put((byte) 1).putInt(7).putInt(k < allowed - 1 ? 1 : 0);
+        }
+        new GeometryConverter().convertWkb(nested.array());
+    }
+
+    @Test
+    void wkbInPlace() {
+        // A little-endian linestring Z followed by a big-endian EWKB point
+        // with an SRID
+        double[] coordinates = {146001.89, 6851888.74, 300000, 7000000, 500000, 7500000};
+        ByteBuffer buffer = ByteBuffer.allocate(9 + 3 * 24 + 9 + 16);
+        buffer.order(ByteOrder.LITTLE_ENDIAN).put((byte) 1).putInt(1002).putInt(3);
+        for (int k = 0; k < 3; k++) {
+            buffer.putDouble(coordinates[2 * k]).putDouble(coordinates[2 * k + 1]).putDouble(k);
+        }
+        buffer.order(ByteOrder.BIG_ENDIAN).put((byte) 0).putInt(0x20000001).putInt(25833)
+                .putDouble(coordinates[0]).putDouble(coordinates[1]);
+        byte[] wkb = buffer.array();
+        new GeometryConverter().convertWkb(wkb);
+
+        new TrackConverter().convertLine(coordinates, 0, 3);
+        ByteBuffer little = ByteBuffer.wrap(wkb).order(ByteOrder.LITTLE_ENDIAN);
+        for (int k = 0; k < 3; k++) {
+            assertEquals(coordinates[2 * k + 1], little.getDouble(9 + 24 * k));
+            assertEquals(coordinates[2 * k], little.getDouble(9 + 24 * k + 8));
+            assertEquals(k, little.getDouble(9 + 24 * k + 16));
+        }
+        ByteBuffer big = ByteBuffer.wrap(wkb);
+        assertEquals(GeometryConverter.WGS84, big.getInt(81 + 5));
+        assertEquals(coordinates[1], big.getDouble(81 + 9));
+        assertEquals(coordinates[0], big.getDouble(81 + 17));
+
+        assertThrows(IllegalArgumentException.class, () -> new GeometryConverter().convertWkb(new byte[] {2}));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> new GeometryConverter().convertWkb(new byte[] {1, 2, 0, 0, 0, 9, 0, 0, 0}));
+        // A count that overflows the size of the vertices in int
+        byte[] overflow = new byte[64];
+        ByteBuffer.wrap(overflow).order(ByteOrder.LITTLE_ENDIAN).put((byte) 1).putInt(2).putInt(0x10000000);
+        assertThrows(IndexOutOfBoundsException.class, () -> new GeometryConverter().convertWkb(overflow));
+    }
+
+    /**
+     * The value as text, with a random number of decimals, sometimes with
+     * more than 15 digits, a plus sign or an exponent.
+     */
+    private static String number(Random random, double value) {
+        int decimals = random.nextInt(14);
+        String text = String.format(Locale.ROOT, "%." + decimals + "f", value);
+        switch (random.nextInt(10)) {
+            case 0:
+                return "+" + text;
+            case 1:
+                return decimals > 0 ? text + "0000000" : text;
+            case 2:
+                return Double.toString(value / 1000) + "e3";
+            case 3:
+                return decimals == 0 ? text + "." : text;
+            case 4:
+                return "00" + (long) (value * 1000) + "E-3";
+            case 5:
+                return (long) Math.rint(value) / 100 + "00.000";
+            default:
+                return text;
+        }
+    }
+}
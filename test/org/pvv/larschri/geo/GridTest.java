@@ -0,0 +1,107 @@
+package org.pvv.larschri.geo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Grids must convert like the built-in grid, also outside it, and survive a
+ * round trip through a file.
+ */
+class GridTest {
+    static final int SIZE = 10000;
+
+    @TempDir
+    Path directory;
+
+    private static double[][] points() {
+        Random random = new Random(1);
+        double[][] points = new double[2][SIZE];
+        for (int k = 0; k < SIZE; k++) {
+            points[0][k] = -200000 + random.nextDouble() * 1600000;
+            points[1][k] = 6200000 + random.nextDouble() * 2000000;
+        }
+        return points;
+    }
+
+    private static double[][] convert(Grid grid, double[][] points) {
+        double[][] latLng = new double[2][SIZE];
+        grid.convert(points[0], points[1], latLng[0], latLng[1], 0, SIZE);
+        return latLng;
+    }
+
+    @Test
+    void builtIn() {
+        double[][] points = points();
+        double[][] latLng = convert(Grid.builtIn(), points);
+        for (int k = 0; k < SIZE; k++) {
+            UTM33ToLatLng.LatLng expected = UTM33ToLatLng.convert(points[0][k], points[1][k]);
+            assertEquals(expected.latitude, latLng[0][k], UTM33ToLatLngTest.TOLERANCE);
+            assertEquals(expected.longitude, latLng[1][k], UTM33ToLatLngTest.TOLERANCE);
+        }
+    }
+
+    @Test
+    void writeAndLoad() throws IOException {
+        Grid grid = Grid.builtIn();
+        Path path = directory.resolve("utm33.grid");
+        grid.write(path);
+        Grid loaded = Grid.load(path);
+        assertEquals(grid.granularity, loaded.granularity);
+        assertEquals(grid.minEasting, loaded.minEasting);
+        assertEquals(grid.minNorthing, loaded.minNorthing);
+        assertEquals(grid.columns, loaded.columns);
+        assertEquals(grid.rows, loaded.rows);
+        double[][] points = points();
+        double[][] expected = convert(grid, points);
+        double[][] latLng = convert(loaded, points);
+        assertArrayEquals(expected[0], latLng[0]);
+        assertArrayEquals(expected[1], latLng[1]);
+    }
+
+    @Test
+    void loadInvalid() throws IOException {
+        Path path = directory.resolve("utm33.grid");
+        Grid.builtIn().write(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 8);
+        }
+        assertThrows(IOException.class, () -> Grid.load(path));
+
+        Path text = Files.write(directory.resolve("text.grid"), "easting,northing\n".repeat(4).getBytes());
+        assertThrows(IOException.class, () -> Grid.load(text));
+        Path empty = Files.write(directory.resolve("empty.grid"), new byte[0]);
+        assertThrows(IOException.class, () -> Grid.load(empty));
+    }
+
+    @Test
+    void loadOversized() throws IOException {
+        // The header of the built-in grid, with 20000x20000 points, in a
+        // sparse file of the right size, which is over 2 GB
+        Path path = directory.resolve("large.grid");
+        Grid.builtIn().write(path);
+        ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(20000).putInt(20000);
+        header.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(header, 24);
+        }
+        assertThrows(IOException.class, () -> Grid.load(path));
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(32 + 16L * 20000 * 20000);
+        }
+        assertThrows(IOException.class, () -> Grid.load(path));
+    }
+}
@@ -0,0 +1,43 @@
+package org.pvv.larschri.geo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Round trips through {@link UTM33ToLatLng} and {@link LatLngToUTM33}.
+ */
+class LatLngToUTM33Test {
+    /**
+     * Maximum error of a round trip in meters, 10 nanometers.
+     */
+    static final double TOLERANCE = 1e-8;
+
+    @Test
+    void roundTrip() {
+        Random random = new Random(1);
+        int size = 100000;
+        double[] easting = new double[size];
+        double[] northing = new double[size];
+        for (int k = 0; k < size; k++) {
+            // Within the grid, and beyond it where the projection is used
+            easting[k] = -200000 + random.nextDouble() * 1600000;
+            northing[k] = 6200000 + random.nextDouble() * 2000000;
+        }
+        double[] latitude = new double[size];
+        double[] longitude = new double[size];
+        UTM33ToLatLng.convert(easting, northing, latitude, longitude, 0, size);
+        double[] eastingOut = new double[size];
+        double[] northingOut = new double[size];
+        LatLngToUTM33.convert(latitude, longitude, eastingOut, northingOut, 0, size);
+        for (int k = 0; k < size; k++) {
+            assertEquals(easting[k], eastingOut[k], TOLERANCE);
+            assertEquals(northing[k], northingOut[k], TOLERANCE);
+        }
+        LatLngToUTM33.UTM33 utm = LatLngToUTM33.convert(latitude[0], longitude[0]);
+        assertEquals(eastingOut[0], utm.easting);
+        assertEquals(northingOut[0], utm.northing);
+    }
+}
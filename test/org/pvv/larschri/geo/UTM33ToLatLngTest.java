@@ -0,0 +1,144 @@
+package org.pvv.larschri.geo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Regression tests of {@link UTM33ToLatLng} against the original
+ * implementation, which looked up the grid in a map of strings and
+ * interpolated with nested parabolas.
+ */
+class UTM33ToLatLngTest {
+    /**
+     * Maximum difference in degrees from the original implementation, from
+     * the precomputed coefficients.
+     */
+    static final double TOLERANCE = 1e-12;
+
+    /**
+     * Easting, northing, latitude and longitude, as converted by the
+     * original implementation.
+     */
+    static final double[][] ORIGINAL = {
+        {146001.89, 6851888.74, 61.63643481162163, 8.31249352628964},
+        {858470.46, 7689528.89, 69.07831764378061, 24.022925975310812},
+        {347143.55, 7306992.91, 65.84752522134683, 11.650840761918813},
+        {98247.77, 6877279.87, 61.81552222204029, 7.363159049709297},
+        {44819.53, 6444895.17, 57.91231106695007, 7.3079977583662235},
+        {448889.28, 7159902.1, 64.56048137314734, 13.933604897431751},
+        {548195.56, 7481686.96, 67.44733819762351, 16.12612041645428},
+        {141108.54, 6581749.03, 59.22214912167806, 8.706656351341907},
+        {304659.47, 7120206.79, 64.1527861830126, 10.982341152937405},
+        {659129.13, 7606793.14, 68.52817997659155, 18.897682479890197},
+        {377577.19, 7238241.25, 65.24444843109805, 12.37939607619194},
+        {309847.82, 7267006.38, 65.46969828904659, 10.893175233919086},
+        {199777.61, 7037589.77, 63.34038523825468, 8.996409430970386},
+        {188374.99, 6625012.76, 59.64624494505601, 9.467805178173496},
+        {271040.73, 6534605.28, 58.889994411500375, 11.025997388756084},
+        {1819.77, 6484727.5, 58.220377190399965, 6.505781546729552},
+        {339060.52, 7085123.55, 63.856228605910836, 11.725366140165592},
+    };
+
+    @Test
+    void convertMatchesOriginal() {
+        for (double[] point : ORIGINAL) {
+            UTM33ToLatLng.LatLng latLng = UTM33ToLatLng.convert(point[0], point[1]);
+            assertEquals(point[2], latLng.latitude, TOLERANCE);
+            assertEquals(point[3], latLng.longitude, TOLERANCE);
+        }
+    }
+
+    @Test
+    void batchMatchesOriginalAlgorithm() {
+        Random random = new Random(1);
+        int size = 100000;
+        double[] easting = new double[size];
+        double[] northing = new double[size];
+        for (int k = 0; k < size; k++) {
+            do {
+                easting[k] = random.nextDouble() * 1200000;
+                northing[k] = 6400000 + random.nextDouble() * 1600000;
+            } while (!UTM33ToLatLng.covered(index(easting[k], northing[k])));
+        }
+        double[] latitude = new double[size];
+        double[] longitude = new double[size];
+        byte[] status = new byte[size];
+        UTM33ToLatLng.convert(easting, northing, latitude, longitude, 0, size);
+        for (int k = 0; k < size; k++) {
+            double[] expected = original(easting[k], northing[k]);
+            assertEquals(expected[0], latitude[k], TOLERANCE);
+            assertEquals(expected[1], longitude[k], TOLERANCE);
+        }
+        double[] statusLatitude = new double[size];
+        double[] statusLongitude = new double[size];
+        UTM33ToLatLng.convert(easting, northing, statusLatitude, statusLongitude, status, 0, size);
+        for (int k = 0; k < size; k++) {
+            assertEquals(UTM33ToLatLng.STATUS_GRID, status[k]);
+            assertEquals(latitude[k], statusLatitude[k]);
+            assertEquals(longitude[k], statusLongitude[k]);
+        }
+    }
+
+    @Test
+    void outsideGridUsesProjection() {
+        // Close to the grid, the projection agrees with it within the
+        // interpolation error
+        UTM33ToLatLng.LatLng grid = UTM33ToLatLng.convert(146001.89, 6851888.74);
+        double[] latLng = new double[2];
+        TransverseMercator.toLatLng(146001.89, 6851888.74, latLng, 0, latLng, 1);
+        assertEquals(grid.latitude, latLng[0], 1e-4);
+        assertEquals(grid.longitude, latLng[1], 1e-4);
+
+        double[] easting = {500000, 500000, 500000, 1e20, -1e7, Double.NaN};
+        double[] northing = {5000000, 3e7, 2.5e7, 7000000, 7000000, 7000000};
+        double[] latitude = new double[6];
+        double[] longitude = new double[6];
+        byte[] status = new byte[6];
+        UTM33ToLatLng.convert(easting, northing, latitude, longitude, status, 0, 6);
+        assertEquals(UTM33ToLatLng.STATUS_ANALYTIC, status[0]);
+        assertTrue(latitude[0] > 45 && latitude[0] < 46);
+        assertEquals(15, longitude[0], 1e-9);
+        for (int k = 1; k < 6; k++) {
+            assertEquals(UTM33ToLatLng.STATUS_INVALID, status[k]);
+            assertTrue(Double.isNaN(latitude[k]) && Double.isNaN(longitude[k]));
+            assertTrue(Double.isNaN(UTM33ToLatLng.convert(easting[k], northing[k]).latitude));
+        }
+    }
+
+    private static int index(double easting, double northing) {
+        return UTM33ToLatLng.index(UTM33ToLatLng.floor(easting), UTM33ToLatLng.floor(northing));
+    }
+
+    /**
+     * The original conversion, nested parabolas through the 3x3 grid points
+     * from the cell of the point.
+     */
+    static double[] original(double easting, double northing) {
+        int g = UTM33ToLatLng.GRANULARITY;
+        int e = (int) easting / g * g;
+        int n = (int) northing / g * g;
+        double x = easting - e;
+        double y = northing - n;
+        int i = index(e, n);
+        double[] latLng = new double[2];
+        double[][] grids = {UTM33ToLatLng.Tables.LATITUDES, UTM33ToLatLng.Tables.LONGITUDES};
+        for (int axis = 0; axis < 2; axis++) {
+            double[] rows = new double[3];
+            for (int row = 0; row < 3; row++) {
+                int r = i + row * UTM33ToLatLng.COLUMNS;
+                rows[row] = parabola(grids[axis][r], grids[axis][r + 1], grids[axis][r + 2], x / g);
+            }
+            latLng[axis] = parabola(rows[0], rows[1], rows[2], y / g);
+        }
+        return latLng;
+    }
+
+    private static double parabola(double f0, double f1, double f2, double x) {
+        double a = (f2 + f0) / 2 - f1;
+        return a * x * x + (f1 - f0 - a) * x + f0;
+    }
+}